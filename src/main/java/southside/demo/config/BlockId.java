@@ -0,0 +1,20 @@
+package southside.demo.config;
+
+import org.hibernate.annotations.IdGeneratorType;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Assigns ids from blocks reserved by {@link IdBlockAllocator}, so inserts can
+ * be JDBC-batched without an IDENTITY round trip per row.
+ */
+@IdGeneratorType(BlockIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface BlockId {
+
+    /** Table the ids are for; also the generator's row in {@code id_generators}. */
+    String value();
+}
@@ -0,0 +1,40 @@
+package southside.demo.config;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.generator.GeneratorCreationContext;
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+/**
+ * Created by Hibernate through Spring's bean container, so each session
+ * factory gets its own application context's {@link IdBlockAllocator}.
+ */
+public class BlockIdGenerator implements BeforeExecutionGenerator, AnnotationBasedGenerator<BlockId> {
+
+    private final IdBlockAllocator ids;
+    private String table;
+
+    public BlockIdGenerator(IdBlockAllocator ids) {
+        this.ids = ids;
+    }
+
+    @Override
+    public void initialize(BlockId config, Member member, GeneratorCreationContext context) {
+        this.table = config.value();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+            EventType eventType) {
+        return ids.next(table);
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
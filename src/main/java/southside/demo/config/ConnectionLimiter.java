@@ -0,0 +1,187 @@
+package southside.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+/**
+ * Puts a fair semaphore in front of the connection pool.
+ *
+ * With virtual threads there is no request-thread pool left to bound how many
+ * requests reach the database at once, so thousands of them can pile into
+ * Hikari's handoff queue. Here they queue on the semaphore instead, which
+ * parks a virtual thread without holding its carrier, serves them in arrival
+ * order and gives up after {@code db.limiter.timeout} the way Hikari does.
+ * Permits default to the pool's maximum size. A permit is held until the
+ * connection is closed, i.e. handed back to the pool. Every Hikari pool bean
+ * (the main one and {@code ids}) gets a limiter of its own; {@link #stats()}
+ * adds them up.
+ */
+@Component
+@ConditionalOnProperty(name = "db.limiter.enabled", havingValue = "true")
+public class ConnectionLimiter implements BeanPostProcessor {
+
+    private final Environment env;
+    private final Map<String, LimitedDataSource> limited = new ConcurrentHashMap<>();
+
+    public ConnectionLimiter(Environment env) {
+        this.env = env;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource pool)) {
+            return bean;
+        }
+        int permits = env.getProperty("db.limiter.permits", Integer.class, pool.getMaximumPoolSize());
+        Duration timeout = env.getProperty("db.limiter.timeout", Duration.class, Duration.ofSeconds(30));
+        LimitedDataSource wrapped = new LimitedDataSource(pool, permits, timeout);
+        limited.put(beanName, wrapped);
+        return wrapped;
+    }
+
+    public Map<String, Object> stats() {
+        if (limited.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Object> totals = new HashMap<>();
+        for (LimitedDataSource pool : limited.values()) {
+            pool.stats().forEach((key, value) -> totals.merge(key, value,
+                    (a, b) -> ((Number) a).longValue() + ((Number) b).longValue()));
+        }
+        return totals;
+    }
+
+    public static class LimitedDataSource extends DelegatingDataSource {
+
+        private final Semaphore permits;
+        private final int size;
+        private final long timeoutNanos;
+
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder waited = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        public LimitedDataSource(DataSource target, int permits, Duration timeout) {
+            super(target);
+            this.permits = new Semaphore(permits, true);
+            this.size = permits;
+            this.timeoutNanos = timeout.toNanos();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            acquire();
+            return limit(() -> super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            acquire();
+            return limit(() -> super.getConnection(username, password));
+        }
+
+        public Map<String, Object> stats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("permits", size);
+            stats.put("available", permits.availablePermits());
+            stats.put("waiting", permits.getQueueLength());
+            stats.put("acquired", acquired.sum());
+            stats.put("waited", waited.sum());
+            stats.put("timeouts", timeouts.sum());
+            return stats;
+        }
+
+        private interface Open {
+            Connection get() throws SQLException;
+        }
+
+        private void acquire() throws SQLException {
+            if (!permits.tryAcquire()) {
+                waited.increment();
+                try {
+                    if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                        timeouts.increment();
+                        throw new SQLTransientConnectionException("No database permit within "
+                                + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms (" + permits.getQueueLength()
+                                + " waiting)");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLTransientConnectionException("Interrupted waiting for a database permit", e);
+                }
+            }
+            acquired.increment();
+        }
+
+        private Connection limit(Open open) throws SQLException {
+            Connection target;
+            try {
+                target = open.get();
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                    new Class<?>[] { ConnectionProxy.class }, new Releasing(target));
+        }
+
+        // Gives the permit back on the first close(); everything else goes to the pooled connection
+        private final class Releasing implements InvocationHandler {
+
+            private final Connection target;
+            private final AtomicBoolean released = new AtomicBoolean();
+
+            Releasing(Connection target) {
+                this.target = target;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "getTargetConnection":
+                        return target;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "close":
+                        try {
+                            target.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    default:
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                }
+            }
+        }
+    }
+}
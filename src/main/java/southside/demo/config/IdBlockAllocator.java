@@ -0,0 +1,142 @@
+package southside.demo.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.sql.DataSource;
+
+/**
+ * Hands out ids from blocks reserved in the {@code id_generators} table.
+ *
+ * Each block is reserved on a connection from the dedicated {@code ids} pool
+ * (see {@link IdGeneratorConfig}), never from the main one. A transaction
+ * that needs a new block therefore never waits for a second main pool
+ * connection. Hibernate's table generator does exactly that, and starves
+ * the pool once every connection is held by a checkout. Blocks are reserved
+ * with a row lock, so several instances can share the table; ids left in a
+ * block at shutdown are simply skipped.
+ *
+ * Locks are {@link ReentrantLock}s rather than monitors: a virtual thread
+ * blocked on JDBC inside {@code synchronized} would pin its carrier thread.
+ */
+@Component
+public class IdBlockAllocator {
+
+    private final DataSource dataSource;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    private volatile boolean tableReady;
+
+    // Ids still available in the current block of one table
+    private static final class Block {
+        final ReentrantLock lock = new ReentrantLock();
+        long next;
+        long end;
+        boolean aligned;
+    }
+
+    public IdBlockAllocator(@Qualifier("ids") DataSource dataSource,
+            @Value("${ids.block-size:50}") int blockSize) {
+        this.dataSource = dataSource;
+        this.blockSize = blockSize;
+    }
+
+    public long next(String table) {
+        Block block = blocks.computeIfAbsent(table, t -> new Block());
+        block.lock.lock();
+        try {
+            if (block.next >= block.end) {
+                block.next = reserve(table, !block.aligned);
+                block.end = block.next + blockSize;
+                block.aligned = true;
+            }
+            return block.next++;
+        } finally {
+            block.lock.unlock();
+        }
+    }
+
+    // ======================
+    // BLOCK RESERVATION
+    // ======================
+
+    private long reserve(String table, boolean align) {
+        try (Connection c = dataSource.getConnection()) {
+            try {
+                ensureTable(c);
+                long start = lockRow(c, table);
+                if (align) {
+                    // Tables that used to be IDENTITY columns already hold rows
+                    start = Math.max(start, maxId(c, table) + 1);
+                }
+                try (PreparedStatement ps = c.prepareStatement(
+                        "UPDATE id_generators SET next_val = ? WHERE name = ?")) {
+                    ps.setLong(1, start + blockSize);
+                    ps.setString(2, table);
+                    ps.executeUpdate();
+                }
+                c.commit();
+                return start;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not reserve ids for " + table, e);
+        }
+    }
+
+    // Locks the generator row, creating it first if this table has never had one
+    private long lockRow(Connection c, String table) throws SQLException {
+        for (int attempt = 0;; attempt++) {
+            try (PreparedStatement ps = c.prepareStatement(
+                    "SELECT next_val FROM id_generators WHERE name = ? FOR UPDATE")) {
+                ps.setString(1, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getLong(1);
+                    }
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO id_generators (name, next_val) VALUES (?, 1)")) {
+                ps.setString(1, table);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                // Another instance inserted it first; lock theirs instead
+                c.rollback();
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static long maxId(Connection c, String table) throws SQLException {
+        try (Statement st = c.createStatement();
+                ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void ensureTable(Connection c) throws SQLException {
+        if (tableReady) {
+            return;
+        }
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS id_generators "
+                    + "(name VARCHAR(255) NOT NULL PRIMARY KEY, next_val BIGINT)");
+        }
+        c.commit();
+        tableReady = true;
+    }
+}
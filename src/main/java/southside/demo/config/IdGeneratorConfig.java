@@ -0,0 +1,34 @@
+package southside.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import javax.sql.DataSource;
+
+/**
+ * The pool {@link IdBlockAllocator} reserves {@link BlockId} blocks on.
+ *
+ * It sits next to the main pool, so a checkout that needs a new block never
+ * waits for a second main pool connection while holding the first. Being a
+ * pool bean it is wrapped by {@link ConnectionLimiter} like the main one. It
+ * is not a default candidate, so the main {@code DataSource} is still
+ * auto-configured and injected everywhere else.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("ids")
+    public DataSource idsDataSource(DataSourceProperties properties,
+            @Value("${ids.pool.max-size:2}") int maxSize) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("ids");
+        pool.setMaximumPoolSize(maxSize);
+        pool.setMinimumIdle(0);
+        pool.setAutoCommit(false);
+        return pool;
+    }
+}
@@ -0,0 +1,162 @@
+package southside.demo.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import southside.demo.services.CatalogResponseCache;
+import southside.demo.services.CategoryLeaderboard;
+import southside.demo.services.CheckoutService;
+import southside.demo.services.IdleCartSweeper;
+import southside.demo.services.OrderStatusStream;
+import southside.demo.services.OutboxDispatcher;
+import southside.demo.services.ProductCatalogCache;
+import southside.demo.services.RelatedProducts;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the counters behind the services' {@code /stats} endpoints as
+ * meters. Values are read from {@code stats()} when the registry is scraped,
+ * so none of this touches a request path. Each service's {@code stats()} runs
+ * once per scrape, not once per meter.
+ */
+@Component
+public class ServiceMetrics implements MeterBinder {
+
+    private final ProductCatalogCache catalog;
+    private final CatalogResponseCache catalogResponses;
+    private final CheckoutService checkout;
+    private final OutboxDispatcher outbox;
+    private final OrderStatusStream statusStream;
+    private final RelatedProducts relatedProducts;
+    private final CategoryLeaderboard leaderboard;
+    private final IdleCartSweeper sweeper;
+    private final ObjectProvider<ConnectionLimiter> limiter;
+    private final List<Snapshot> snapshots = new ArrayList<>();
+
+    // Longer than reading every meter takes, far shorter than a scrape interval
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public ServiceMetrics(ProductCatalogCache catalog, CatalogResponseCache catalogResponses,
+            CheckoutService checkout, OutboxDispatcher outbox, OrderStatusStream statusStream,
+            RelatedProducts relatedProducts, CategoryLeaderboard leaderboard,
+            IdleCartSweeper sweeper, ObjectProvider<ConnectionLimiter> limiter) {
+        this.catalog = catalog;
+        this.catalogResponses = catalogResponses;
+        this.checkout = checkout;
+        this.outbox = outbox;
+        this.statusStream = statusStream;
+        this.relatedProducts = relatedProducts;
+        this.leaderboard = leaderboard;
+        this.sweeper = sweeper;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Snapshot catalogStats = snapshot(catalog::stats);
+        counter(registry, "catalog.cache.requests", catalogStats, "hits", "result", "hit");
+        counter(registry, "catalog.cache.requests", catalogStats, "misses", "result", "miss");
+        counter(registry, "catalog.cache.evictions", catalogStats, "evictions");
+        gauge(registry, "catalog.cache.size", catalogStats, "size");
+        Snapshot responseStats = snapshot(catalogResponses::stats);
+        counter(registry, "catalog.responses", responseStats, "hits", "result", "hit");
+        counter(registry, "catalog.responses", responseStats, "renders", "result", "render");
+
+        Snapshot checkoutStats = snapshot(checkout::stats);
+        counter(registry, "checkout.requests", checkoutStats, "placed", "outcome", "placed");
+        counter(registry, "checkout.requests", checkoutStats, "coalesced", "outcome", "coalesced");
+        counter(registry, "checkout.requests", checkoutStats, "replayedFromCache", "outcome", "replayed_cache");
+        counter(registry, "checkout.requests", checkoutStats, "replayedFromTable", "outcome", "replayed_table");
+        gauge(registry, "checkout.in.flight", checkoutStats, "inFlight");
+
+        // Two indexed COUNTs (pending, dead) per scrape
+        Snapshot outboxStats = snapshot(outbox::stats);
+        counter(registry, "outbox.delivered", outboxStats, "delivered");
+        counter(registry, "outbox.failures", outboxStats, "failures");
+        gauge(registry, "outbox.pending", outboxStats, "pending");
+        gauge(registry, "outbox.dead", outboxStats, "dead");
+
+        Snapshot streamStats = snapshot(statusStream::stats);
+        gauge(registry, "orders.stream.connections", streamStats, "connections");
+        counter(registry, "orders.stream.sent", streamStats, "sent");
+        counter(registry, "orders.stream.overflows", streamStats, "overflows");
+
+        Snapshot relatedStats = snapshot(relatedProducts::stats);
+        gauge(registry, "recommendations.pairs", relatedStats, "pairs");
+        counter(registry, "recommendations.prunes", relatedStats, "prunes");
+        counter(registry, "leaderboard.units", snapshot(leaderboard::stats), "units");
+
+        Snapshot sweeperStats = snapshot(sweeper::stats);
+        counter(registry, "cart.sweeper.carts.deleted", sweeperStats, "cartsDeleted");
+        counter(registry, "cart.sweeper.runs", sweeperStats, "runs");
+        gauge(registry, "cart.sweeper.last.run", sweeperStats, "lastRunMillis");
+        limiter.ifAvailable(l -> {
+            Snapshot limiterStats = snapshot(l::stats);
+            gauge(registry, "db.limiter.waiting", limiterStats, "waiting");
+            gauge(registry, "db.limiter.available", limiterStats, "available");
+            counter(registry, "db.limiter.timeouts", limiterStats, "timeouts");
+        });
+    }
+
+    // Meters only hold their object weakly, so snapshots are kept here for as long as the binder
+    private Snapshot snapshot(Supplier<Map<String, Object>> stats) {
+        Snapshot snapshot = new Snapshot(stats);
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+
+    private static void counter(MeterRegistry registry, String name, Snapshot stats, String key, String... tags) {
+        FunctionCounter.builder(name, stats, s -> s.value(key)).tags(tags).register(registry);
+    }
+
+    private static void gauge(MeterRegistry registry, String name, Snapshot stats, String key) {
+        Gauge.builder(name, stats, s -> s.value(key)).register(registry);
+    }
+
+    /**
+     * One service's {@code stats()}, shared by all of its meters. A scrape
+     * reads each meter once, so {@code stats()} runs again when a key is read
+     * a second time, or when the map is older than {@link #MAX_AGE_NANOS}.
+     */
+    private static final class Snapshot {
+
+        // Not a monitor: stats() may run a query, and a virtual thread must not pin on JDBC
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Supplier<Map<String, Object>> stats;
+        private final Set<String> read = new HashSet<>();
+        private Map<String, Object> last;
+        private long takenAt;
+
+        Snapshot(Supplier<Map<String, Object>> stats) {
+            this.stats = stats;
+        }
+
+        double value(String key) {
+            Map<String, Object> current;
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                if (last == null || !read.add(key) || now - takenAt > MAX_AGE_NANOS) {
+                    last = stats.get();
+                    takenAt = now;
+                    read.clear();
+                    read.add(key);
+                }
+                current = last;
+            } finally {
+                lock.unlock();
+            }
+            return current.get(key) instanceof Number n ? n.doubleValue() : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package southside.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statements and SQL time per request, tagged like {@code http.server.requests}
+ * (uri template and method):
+ * {@code http.server.requests.sql.statements} and {@code http.server.requests.sql.time}.
+ *
+ * This interceptor puts a pair of counters on each request when it starts
+ * and records them when it completes. {@link SqlStatementListener} finds
+ * them through {@link RequestContextHolder}, which Spring binds to whatever
+ * thread is handling the request, so an async request (order export, status
+ * stream) keeps its counters across dispatches. Statements outside a request
+ * (scheduled jobs, the export's writer thread) are not counted, nor are those
+ * issued through JdbcTemplate, which bypasses Hibernate. Meters are looked up
+ * once per endpoint and kept.
+ *
+ * Each request does allocate its two-long counter array. That is deliberate:
+ * a reused per-thread array cannot follow an async request onto another
+ * thread, and under virtual threads there is no thread to reuse it on.
+ */
+@Configuration
+public class SqlMetrics implements HandlerInterceptor, WebMvcConfigurer {
+
+    // Request attribute holding {statements, nanos}
+    private static final String COUNTERS = SqlMetrics.class.getName() + ".counters";
+
+    private record Meters(DistributionSummary statements, Timer time) {
+    }
+
+    private final MeterRegistry registry;
+
+    // uri template -> HTTP method -> meters
+    private final Map<String, Map<String, Meters>> meters = new ConcurrentHashMap<>();
+
+    public SqlMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    static void executed(long nanos) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null
+                && request.getAttribute(COUNTERS, RequestAttributes.SCOPE_REQUEST) instanceof long[] counters) {
+            counters[0]++;
+            counters[1] += nanos;
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(this);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // An async dispatch carries on with the counters of the request it belongs to
+        if (request.getAttribute(COUNTERS) == null) {
+            request.setAttribute(COUNTERS, new long[2]);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object counters = request.getAttribute(COUNTERS);
+        request.removeAttribute(COUNTERS);
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (!(uri instanceof String template) || !(counters instanceof long[] current)) {
+            return;
+        }
+        Meters endpoint = meters(template, request.getMethod());
+        endpoint.statements().record(current[0]);
+        endpoint.time().record(current[1], TimeUnit.NANOSECONDS);
+    }
+
+    private Meters meters(String uri, String method) {
+        Map<String, Meters> byMethod = meters.get(uri);
+        if (byMethod == null) {
+            byMethod = meters.computeIfAbsent(uri, u -> new ConcurrentHashMap<>());
+        }
+        Meters found = byMethod.get(method);
+        if (found == null) {
+            found = byMethod.computeIfAbsent(method, m -> new Meters(
+                    DistributionSummary.builder("http.server.requests.sql.statements")
+                            .baseUnit("statements")
+                            .tag("uri", uri).tag("method", m)
+                            .register(registry),
+                    Timer.builder("http.server.requests.sql.time")
+                            .tag("uri", uri).tag("method", m)
+                            .register(registry)));
+        }
+        return found;
+    }
+}
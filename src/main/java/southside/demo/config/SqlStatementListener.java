@@ -0,0 +1,33 @@
+package southside.demo.config;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Times every JDBC execution Hibernate makes and adds it to the running
+ * current request's totals in {@link SqlMetrics}. Registered through
+ * {@code hibernate.session.events.auto}, one instance per session.
+ */
+public class SqlStatementListener implements SessionEventListener {
+
+    private long started;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        started = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        SqlMetrics.executed(System.nanoTime() - started);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        started = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        SqlMetrics.executed(System.nanoTime() - started);
+    }
+}
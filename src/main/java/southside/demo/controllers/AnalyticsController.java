@@ -0,0 +1,158 @@
+package southside.demo.controllers;
+
+import southside.demo.models.Product;
+import southside.demo.models.ProductSales;
+import southside.demo.models.SalesHour;
+import southside.demo.models.StatusCount;
+import southside.demo.repository.ProductRepository;
+import southside.demo.repository.ProductSalesRepository;
+import southside.demo.repository.SalesHourRepository;
+import southside.demo.repository.StatusCountRepository;
+import southside.demo.services.SalesRollups;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Admin reports answered from the sales rollup tables, so their cost depends
+ * on the range and the limit asked for, never on how many orders exist.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AnalyticsController {
+
+    private static final int MAX_TOP_PRODUCTS = 100;
+    private static final Duration MAX_RANGE = Duration.ofDays(400);
+
+    private final SalesHourRepository salesHourRepo;
+    private final StatusCountRepository statusCountRepo;
+    private final ProductSalesRepository productSalesRepo;
+    private final ProductRepository productRepo;
+    private final SalesRollups rollups;
+
+    public AnalyticsController(SalesHourRepository salesHourRepo, StatusCountRepository statusCountRepo,
+            ProductSalesRepository productSalesRepo, ProductRepository productRepo, SalesRollups rollups) {
+        this.salesHourRepo = salesHourRepo;
+        this.statusCountRepo = statusCountRepo;
+        this.productSalesRepo = productSalesRepo;
+        this.productRepo = productRepo;
+        this.rollups = rollups;
+    }
+
+    /*
+     * ============================
+     * REVENUE BY HOUR OR DAY
+     * ============================
+     */
+    @GetMapping("/revenue")
+    public ResponseEntity<List<Map<String, Object>>> getRevenue(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "day") String granularity) {
+        if (to == null) {
+            to = LocalDateTime.now();
+        }
+        if (from == null) {
+            from = to.minusDays(30);
+        }
+        if (Duration.between(from, to).compareTo(MAX_RANGE) > 0) {
+            throw new RuntimeException("Range is longer than " + MAX_RANGE.toDays() + " days");
+        }
+        ChronoUnit unit = switch (granularity) {
+            case "hour" -> ChronoUnit.HOURS;
+            case "day" -> ChronoUnit.DAYS;
+            default -> throw new RuntimeException("Granularity must be hour or day");
+        };
+
+        // Hourly rows merged into the requested buckets
+        Map<LocalDateTime, Map<String, Object>> buckets = new LinkedHashMap<>();
+        for (SalesHour hour : salesHourRepo.findByBucketStartBetweenOrderByBucketStart(
+                from.truncatedTo(ChronoUnit.HOURS), to)) {
+            Map<String, Object> bucket = buckets.computeIfAbsent(hour.getBucketStart().truncatedTo(unit),
+                    start -> emptyBucket(start));
+            bucket.merge("orders", hour.getOrderCount(), (a, b) -> (Long) a + (Long) b);
+            bucket.merge("revenue", hour.getRevenue(), (a, b) -> ((BigDecimal) a).add((BigDecimal) b));
+            bucket.merge("cancelledOrders", hour.getCancelledCount(), (a, b) -> (Long) a + (Long) b);
+            bucket.merge("cancelledRevenue", hour.getCancelledRevenue(),
+                    (a, b) -> ((BigDecimal) a).add((BigDecimal) b));
+        }
+        List<Map<String, Object>> response = new ArrayList<>(buckets.values());
+        for (Map<String, Object> bucket : response) {
+            bucket.put("netRevenue",
+                    ((BigDecimal) bucket.get("revenue")).subtract((BigDecimal) bucket.get("cancelledRevenue")));
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /*
+     * ============================
+     * ORDER COUNTS BY STATUS
+     * ============================
+     */
+    @GetMapping("/status-counts")
+    public ResponseEntity<Map<String, Long>> getStatusCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (StatusCount count : statusCountRepo.findAll()) {
+            counts.put(count.getStatus(), count.getOrderCount());
+        }
+        return ResponseEntity.ok(counts);
+    }
+
+    /*
+     * ============================
+     * TOP PRODUCTS BY UNITS SOLD
+     * ============================
+     */
+    @GetMapping("/top-products")
+    public ResponseEntity<List<Map<String, Object>>> getTopProducts(@RequestParam(defaultValue = "10") int limit) {
+        List<ProductSales> top = productSalesRepo.findAllByOrderByUnitsDescProductIdAsc(
+                Limit.of(Math.max(1, Math.min(limit, MAX_TOP_PRODUCTS))));
+
+        Map<Long, String> names = new HashMap<>();
+        for (Product p : productRepo.findAllById(top.stream().map(ProductSales::getProductId).toList())) {
+            names.put(p.getId(), p.getName());
+        }
+        List<Map<String, Object>> response = new ArrayList<>();
+        for (ProductSales sales : top) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("productId", sales.getProductId());
+            row.put("name", names.get(sales.getProductId()));
+            row.put("units", sales.getUnits());
+            row.put("revenue", sales.getRevenue());
+            response.add(row);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /*
+     * ============================
+     * REBUILD ROLLUPS FROM ORDERS
+     * ============================
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        return ResponseEntity.ok(rollups.rebuild());
+    }
+
+    private static Map<String, Object> emptyBucket(LocalDateTime start) {
+        Map<String, Object> bucket = new HashMap<>();
+        bucket.put("start", start);
+        bucket.put("orders", 0L);
+        bucket.put("revenue", BigDecimal.ZERO);
+        bucket.put("cancelledOrders", 0L);
+        bucket.put("cancelledRevenue", BigDecimal.ZERO);
+        return bucket;
+    }
+}
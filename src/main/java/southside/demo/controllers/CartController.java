@@ -2,28 +2,30 @@ package southside.demo.controllers;
 
 import southside.demo.models.*;
 import southside.demo.repository.*;
+import southside.demo.services.CartStore;
+import southside.demo.services.IdleCartSweeper;
 import org.springframework.web.bind.annotation.*;
-import jakarta.transaction.Transactional;
 import org.springframework.http.ResponseEntity;
-import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+// Transactions (if any) belong to the CartStore; the write-behind store needs none per click
 @RestController
-@Transactional
 @RequestMapping("/api/cart")
 @CrossOrigin(origins = "http://localhost:3000")
 public class CartController {
 
-    private final CartRepository cartRepo;
-    private final CartItemRepository cartItemRepo;
+    private final CartStore cartStore;
     private final ProductRepository productRepo;
+    private final IdleCartSweeper sweeper;
 
-    public CartController(CartRepository cartRepo, CartItemRepository cartItemRepo,
-            ProductRepository productRepo) {
-        this.cartRepo = cartRepo;
-        this.cartItemRepo = cartItemRepo;
+    public CartController(CartStore cartStore, ProductRepository productRepo, IdleCartSweeper sweeper) {
+        this.cartStore = cartStore;
         this.productRepo = productRepo;
+        this.sweeper = sweeper;
     }
 
     /*
@@ -33,11 +35,12 @@ public class CartController {
      */
     @GetMapping("/{userId}")
     public ResponseEntity<Cart> getCartByUserId(@PathVariable Long userId) {
-        Cart cart = cartRepo.findByUserId(userId)
+        // A user without a cart sees an empty one; the row is only created by the first add
+        Cart cart = cartStore.find(userId)
                 .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUserId(userId);
-                    return cartRepo.save(newCart);
+                    Cart emptyCart = new Cart();
+                    emptyCart.setUserId(userId);
+                    return emptyCart;
                 });
         return ResponseEntity.ok(cart);
     }
@@ -50,49 +53,94 @@ public class CartController {
     @PostMapping("/{userId}/items")
     public ResponseEntity<Cart> addItemToCart(@PathVariable Long userId,
             @RequestBody Map<String, Object> request) {
-        // Get or create cart
-        Cart cart = cartRepo.findByUserId(userId)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUserId(userId);
-                    return cartRepo.save(newCart);
-                });
-
         Long productId = Long.valueOf(request.get("productId").toString());
         Integer quantity = Integer.valueOf(request.get("quantity").toString());
 
-        // Get product
-        Product product = productRepo.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        // Check if item already exists in cart
-        CartItem existingItem = cartItemRepo.findByCartIdAndProductId(cart.getId(), productId)
-                .orElse(null);
-
-        if (existingItem != null) {
-            // Update quantity
-            existingItem.setQuantity(existingItem.getQuantity() + quantity);
-            cartItemRepo.save(existingItem);
-        } else {
-            // Create new cart item
-            CartItem newItem = new CartItem();
-            newItem.setCart(cart);
-            newItem.setProduct(product);
-            newItem.setQuantity(quantity);
-            newItem.setPrice(product.getPrice());
-            cartItemRepo.save(newItem);
-        }
+        // Get or create cart
+        Cart cart = cartStore.updateOrCreate(userId, c -> {
+            // Get product
+            Product product = productRepo.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
 
-        // Update cart total
-        cart.setUpdatedAt(LocalDateTime.now());
-        cart.calculateTotal();
-        cartRepo.save(cart);
+            // Merges into an existing line for the product and adjusts the total by the difference
+            c.addItem(product, quantity);
+        });
 
-        // Reload cart with items
-        cart = cartRepo.findById(cart.getId()).orElseThrow();
         return ResponseEntity.ok(cart);
     }
 
+    /*
+     * ============================
+     * BATCH UPDATE (add / set / remove by product)
+     * ============================
+     */
+    @PatchMapping("/{userId}/items")
+    public ResponseEntity<Cart> applyCartOperations(@PathVariable Long userId,
+            @RequestBody List<CartOperation> operations) {
+        // Any failure leaves the cart as it was
+        Cart cart = cartStore.updateOrCreate(userId, c -> applyOperations(c, operations));
+        return ResponseEntity.ok(cart);
+    }
+
+    private void applyOperations(Cart cart, List<CartOperation> operations) {
+        // Products already on a line come with the cart; the rest are loaded in one query
+        Map<Long, Product> products = new HashMap<>();
+        for (CartItem line : cart.getItems()) {
+            products.put(line.getProduct().getId(), line.getProduct());
+        }
+        Set<Long> missing = new HashSet<>();
+        for (CartOperation operation : operations) {
+            if ("remove".equals(operation.op())) {
+                continue;
+            }
+            if (operation.quantity() == null) {
+                throw new RuntimeException("Quantity is required for cart operation: " + operation.op());
+            }
+            if (!products.containsKey(operation.productId())) {
+                missing.add(operation.productId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Product product : productRepo.findAllById(missing)) {
+                products.put(product.getId(), product);
+            }
+        }
+
+        for (CartOperation operation : operations) {
+            CartItem line = cart.findItemByProductId(operation.productId());
+            switch (operation.op() == null ? "" : operation.op()) {
+                case "add" -> {
+                    if (line != null) {
+                        cart.changeQuantity(line, line.getQuantity() + operation.quantity());
+                    } else {
+                        cart.addItem(requireProduct(products, operation.productId()), operation.quantity());
+                    }
+                }
+                case "set" -> {
+                    if (line != null) {
+                        cart.changeQuantity(line, operation.quantity());
+                    } else if (operation.quantity() > 0) {
+                        cart.addItem(requireProduct(products, operation.productId()), operation.quantity());
+                    }
+                }
+                case "remove" -> {
+                    if (line != null) {
+                        cart.removeItem(line);
+                    }
+                }
+                default -> throw new RuntimeException("Unknown cart operation: " + operation.op());
+            }
+        }
+    }
+
+    private static Product requireProduct(Map<Long, Product> products, Long productId) {
+        Product product = products.get(productId);
+        if (product == null) {
+            throw new RuntimeException("Product not found: " + productId);
+        }
+        return product;
+    }
+
     /*
      * ============================
      * UPDATE CART ITEM QUANTITY
@@ -102,27 +150,16 @@ public class CartController {
     public ResponseEntity<Cart> updateCartItem(@PathVariable Long userId,
             @PathVariable Long itemId,
             @RequestBody Map<String, Integer> request) {
-        Cart cart = cartRepo.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-
-        CartItem item = cartItemRepo.findById(itemId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-
-        Integer quantity = request.get("quantity");
-        if (quantity <= 0) {
-            cartItemRepo.delete(item);
-        } else {
-            item.setQuantity(quantity);
-            cartItemRepo.save(item);
-        }
+        Cart cart = cartStore.update(userId, c -> {
+            CartItem item = c.findItem(itemId);
+            if (item == null) {
+                throw new RuntimeException("Cart item not found");
+            }
 
-        // Update cart total
-        cart.setUpdatedAt(LocalDateTime.now());
-        cart.calculateTotal();
-        cartRepo.save(cart);
+            // Zero or less removes the line
+            c.changeQuantity(item, request.get("quantity"));
+        }).orElseThrow(() -> new RuntimeException("Cart not found"));
 
-        // Reload cart
-        cart = cartRepo.findById(cart.getId()).orElseThrow();
         return ResponseEntity.ok(cart);
     }
 
@@ -134,31 +171,17 @@ public class CartController {
     @DeleteMapping("/{userId}/items/{itemId}")
     public ResponseEntity<Cart> removeItemFromCart(@PathVariable Long userId,
             @PathVariable Long itemId) {
-        Cart cart = cartRepo.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found for user: " + userId));
-
-        CartItem item = cartItemRepo.findById(itemId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found with id: " + itemId));
-
-        if (!item.getCart().getId().equals(cart.getId())) {
-            throw new RuntimeException("Cart item does not belong to this user's cart");
-        }
-
-        // Delete the item
-        cartItemRepo.deleteById(itemId); // Use deleteById instead
-        cartItemRepo.flush();
-
-        // Clear persistence context to avoid stale data
-        cart.getItems().remove(item);
-        cart.setUpdatedAt(LocalDateTime.now());
-        cart.calculateTotal();
-        cartRepo.saveAndFlush(cart);
+        Cart cart = cartStore.update(userId, c -> {
+            // Only lines of this user's cart can be found here
+            CartItem item = c.findItem(itemId);
+            if (item == null) {
+                throw new RuntimeException("Cart item not found with id: " + itemId);
+            }
 
-        // Reload with fresh data
-        Cart updatedCart = cartRepo.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
+            c.removeItem(item);
+        }).orElseThrow(() -> new RuntimeException("Cart not found for user: " + userId));
 
-        return ResponseEntity.ok(updatedCart);
+        return ResponseEntity.ok(cart);
     }
 
     /*
@@ -169,27 +192,17 @@ public class CartController {
     @DeleteMapping("/{userId}/products/{productId}")
     public ResponseEntity<Cart> removeItemByProductId(@PathVariable Long userId,
             @PathVariable Long productId) {
-        // Get cart
-        Cart cart = cartRepo.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found for user: " + userId));
-
-        // Find item by product ID
-        CartItem item = cartItemRepo.findByCartIdAndProductId(cart.getId(), productId)
-                .orElseThrow(() -> new RuntimeException("Product not found in cart"));
+        Cart cart = cartStore.update(userId, c -> {
+            // Find item by product ID
+            CartItem item = c.findItemByProductId(productId);
+            if (item == null) {
+                throw new RuntimeException("Product not found in cart");
+            }
 
-        // Delete the item
-        cartItemRepo.delete(item);
-        cartItemRepo.flush();
+            c.removeItem(item);
+        }).orElseThrow(() -> new RuntimeException("Cart not found for user: " + userId));
 
-        // Update cart
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepo.save(cart);
-
-        // Reload cart with fresh data
-        Cart updatedCart = cartRepo.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-
-        return ResponseEntity.ok(updatedCart);
+        return ResponseEntity.ok(cart);
     }
 
     /*
@@ -199,14 +212,9 @@ public class CartController {
      */
     @DeleteMapping("/{userId}/clear")
     public ResponseEntity<Map<String, String>> clearCart(@PathVariable Long userId) {
-        Cart cart = cartRepo.findByUserId(userId)
+        cartStore.update(userId, Cart::clearItems)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
 
-        cartItemRepo.deleteAll(cart.getItems());
-        cart.setUpdatedAt(LocalDateTime.now());
-        cart.calculateTotal();
-        cartRepo.save(cart);
-
         Map<String, String> response = new HashMap<>();
         response.put("message", "Cart cleared successfully");
         return ResponseEntity.ok(response);
@@ -219,11 +227,21 @@ public class CartController {
      */
     @GetMapping("/{userId}/total")
     public ResponseEntity<Map<String, Double>> getCartTotal(@PathVariable Long userId) {
-        Cart cart = cartRepo.findByUserId(userId)
+        Cart cart = cartStore.find(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
 
         Map<String, Double> response = new HashMap<>();
         response.put("total", cart.getTotalPrice());
         return ResponseEntity.ok(response);
     }
+
+    /*
+     * ============================
+     * IDLE CART SWEEPER STATS
+     * ============================
+     */
+    @GetMapping("/sweeper/stats")
+    public Map<String, Object> getSweeperStats() {
+        return sweeper.stats();
+    }
 }
@@ -2,32 +2,52 @@ package southside.demo.controllers;
 
 import southside.demo.models.*;
 import southside.demo.repository.*;
+import southside.demo.services.CheckoutService;
+import southside.demo.services.OrderExportService;
+import southside.demo.services.OrderStatusService;
+import southside.demo.services.OrderStatusStream;
+import southside.demo.services.OutboxDispatcher;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/orders")
 @CrossOrigin(origins = "http://localhost:3000")
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final OrderRepository orderRepo;
-    private final OrderItemRepository orderItemRepo;
-    private final CartRepository cartRepo;
-    private final CartItemRepository cartItemRepo;
-    private final ProductRepository productRepo;
-
-    public OrderController(OrderRepository orderRepo, OrderItemRepository orderItemRepo,
-            CartRepository cartRepo, CartItemRepository cartItemRepo,
-            ProductRepository productRepo) {
+    private final OrderExportService exportService;
+    private final CheckoutService checkoutService;
+    private final OutboxDispatcher outboxDispatcher;
+    private final OrderStatusStream statusStream;
+    private final OrderStatusService orderStatusService;
+
+    public OrderController(OrderRepository orderRepo, OrderExportService exportService,
+            CheckoutService checkoutService, OutboxDispatcher outboxDispatcher,
+            OrderStatusStream statusStream, OrderStatusService orderStatusService) {
         this.orderRepo = orderRepo;
-        this.orderItemRepo = orderItemRepo;
-        this.cartRepo = cartRepo;
-        this.cartItemRepo = cartItemRepo;
-        this.productRepo = productRepo;
+        this.exportService = exportService;
+        this.checkoutService = checkoutService;
+        this.outboxDispatcher = outboxDispatcher;
+        this.statusStream = statusStream;
+        this.orderStatusService = orderStatusService;
     }
 
     /*
@@ -36,8 +56,17 @@ public class OrderController {
      * ============================
      */
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        List<Order> orders = orderRepo.findAll();
+    public ResponseEntity<List<Order>> getAllOrders(@RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "50") int size) {
+        if (page == null) {
+            return firstPage(new OrderFilter(null, null, null, null), size);
+        }
+
+        List<Long> ids = orderRepo.findIdsNewestFirst(PageRequest.of(page, pageSize(size)));
+        if (ids.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        List<Order> orders = orderRepo.findWithItemsByIdIn(ids, OrderRepository.NEWEST_FIRST);
         return ResponseEntity.ok(orders);
     }
 
@@ -48,7 +77,7 @@ public class OrderController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
-        Order order = orderRepo.findById(id)
+        Order order = orderRepo.findWithItemsById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         return ResponseEntity.ok(order);
     }
@@ -59,9 +88,26 @@ public class OrderController {
      * ============================
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Order>> getOrdersByUserId(@PathVariable Long userId) {
-        List<Order> orders = orderRepo.findByUserIdOrderByCreatedAtDesc(userId);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<List<Order>> getOrdersByUserId(@PathVariable Long userId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return firstPage(new OrderFilter(userId, null, null, null), limit);
+    }
+
+    /*
+     * ============================
+     * STREAM ORDER STATUS CHANGES (SSE)
+     * ============================
+     */
+    // Replaces polling the order list: only status changes are pushed, as "status"
+    // events; a "resync" event means changes were dropped and the list should be reloaded
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderStatus(@PathVariable Long userId) {
+        return statusStream.subscribe(userId);
+    }
+
+    @GetMapping("/stream/stats")
+    public ResponseEntity<Map<String, Object>> getStreamStats() {
+        return ResponseEntity.ok(statusStream.stats());
     }
 
     /*
@@ -71,78 +117,21 @@ public class OrderController {
      */
     @PostMapping("/checkout/{userId}")
     public ResponseEntity<Order> createOrderFromCart(@PathVariable Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody Order orderData) {
-        // Get user's cart
-        Cart cart = cartRepo.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-
-        if (cart.getItems() == null || cart.getItems().isEmpty()) {
-            throw new RuntimeException("Cart is empty");
-        }
-
-        // Create new order
-        Order order = new Order();
-        order.setUserId(userId);
-        order.setStatus("pending");
-        order.setTotal(cart.getTotalPrice());
-
-        // Map frontend fields from orderData
-        if (orderData.getFullName() != null) {
-            order.setFullName(orderData.getFullName());
-        }
-        if (orderData.getAddress() != null) {
-            order.setAddress(orderData.getAddress());
-        }
-        if (orderData.getCity() != null) {
-            order.setCity(orderData.getCity());
-        }
-        if (orderData.getPostal() != null) {
-            order.setPostal(orderData.getPostal());
-        }
-        if (orderData.getPaymentMethod() != null) {
-            order.setPaymentMethod(orderData.getPaymentMethod());
-        } else {
-            order.setPaymentMethod("cod"); // Default to Cash on Delivery
-        }
-        if (orderData.getCard() != null) {
-            order.setCard(orderData.getCard());
-        }
-
-        // Generate order summary
-        StringBuilder summary = new StringBuilder();
-        for (CartItem item : cart.getItems()) {
-            summary.append(item.getProduct().getName())
-                    .append(" x")
-                    .append(item.getQuantity())
-                    .append(", ");
-        }
-        if (summary.length() > 0) {
-            summary.setLength(summary.length() - 2); // Remove last comma
-        }
-        order.setOrderSummary(summary.toString());
-
-        // Save order
-        Order savedOrder = orderRepo.save(order);
-
-        // Transfer cart items to order items
-        for (CartItem cartItem : cart.getItems()) {
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(savedOrder);
-            orderItem.setProduct(cartItem.getProduct());
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setPrice(cartItem.getPrice());
-            orderItemRepo.save(orderItem);
-        }
+        // Retries and double-clicks with the same key get the first order back
+        Order order = checkoutService.checkout(userId, idempotencyKey, orderData);
+        return ResponseEntity.ok(order);
+    }
 
-        // Clear the cart
-        cartItemRepo.deleteAll(cart.getItems());
-        cart.setUpdatedAt(LocalDateTime.now());
-        cart.calculateTotal();
-        cartRepo.save(cart);
+    @GetMapping("/checkout/stats")
+    public ResponseEntity<Map<String, Object>> getCheckoutStats() {
+        return ResponseEntity.ok(checkoutService.stats());
+    }
 
-        // Reload order with items
-        savedOrder = orderRepo.findById(savedOrder.getId()).orElseThrow();
-        return ResponseEntity.ok(savedOrder);
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        return ResponseEntity.ok(outboxDispatcher.stats());
     }
 
     /*
@@ -153,15 +142,42 @@ public class OrderController {
     @PutMapping("/{id}/status")
     public ResponseEntity<Order> updateOrderStatus(@PathVariable Long id,
             @RequestBody Map<String, String> request) {
-        Order order = orderRepo.findById(id)
+        // Admin override: any status, no transition rules
+        orderStatusService.setStatus(id, request.get("status"));
+
+        Order updatedOrder = orderRepo.findWithItemsById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
+        return ResponseEntity.ok(updatedOrder);
+    }
 
-        String status = request.get("status");
-        order.setStatus(status);
-        order.setUpdatedAt(LocalDateTime.now());
+    /*
+     * ============================
+     * BULK STATUS TRANSITION
+     * ============================
+     */
+    // For fulfilment: moves many orders at once and reports what happened to each id
+    @PutMapping("/status")
+    public ResponseEntity<Map<String, Object>> transitionOrderStatus(
+            @RequestBody StatusTransitionRequest request) {
+        List<StatusTransitionResult> results = orderStatusService.transition(request.ids(), request.status());
 
-        Order updatedOrder = orderRepo.save(order);
-        return ResponseEntity.ok(updatedOrder);
+        int updated = 0;
+        int notApplied = 0;
+        for (StatusTransitionResult result : results) {
+            if (OrderStatusService.UPDATED.equals(result.outcome())) {
+                updated++;
+            } else if (OrderStatusService.NOT_APPLIED.equals(result.outcome())) {
+                notApplied++;
+            }
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", request.status());
+        response.put("requested", results.size());
+        response.put("updated", updated);
+        // Non-zero when a chunk failed part way; those ids can be sent again
+        response.put("notApplied", notApplied);
+        response.put("results", results);
+        return ResponseEntity.ok(response);
     }
 
     /*
@@ -171,13 +187,10 @@ public class OrderController {
      */
     @PutMapping("/{id}/cancel")
     public ResponseEntity<Order> cancelOrder(@PathVariable Long id) {
-        Order order = orderRepo.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        orderStatusService.setStatus(id, "cancelled");
 
-        order.setStatus("cancelled");
-        order.setUpdatedAt(LocalDateTime.now());
-
-        Order updatedOrder = orderRepo.save(order);
+        Order updatedOrder = orderRepo.findWithItemsById(id)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
         return ResponseEntity.ok(updatedOrder);
     }
 
@@ -201,8 +214,98 @@ public class OrderController {
      * ============================
      */
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Order>> getOrdersByStatus(@PathVariable String status) {
-        List<Order> orders = orderRepo.findByStatus(status);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<List<Order>> getOrdersByStatus(@PathVariable String status,
+            @RequestParam(defaultValue = "100") int limit) {
+        return firstPage(new OrderFilter(null, status, null, null), limit);
+    }
+
+    /*
+     * ============================
+     * GET ORDERS PAGE (KEYSET, NEWEST FIRST)
+     * ============================
+     */
+    @GetMapping("/page")
+    public ResponseEntity<Map<String, Object>> getOrdersPage(@RequestParam(required = false) String status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeCreatedAt,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "50") int limit) {
+        if ((beforeCreatedAt == null) != (beforeId == null)) {
+            // Half a cursor would quietly restart at the newest order
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "beforeCreatedAt and beforeId must be given together");
+        }
+        int size = pageSize(limit);
+
+        // Fetch one extra order to know whether another page exists
+        List<Order> rows = orderRepo.findPage(new OrderFilter(userId, status, from, to),
+                beforeCreatedAt, beforeId, size + 1);
+        boolean hasMore = rows.size() > size;
+        List<Order> items = hasMore ? rows.subList(0, size) : rows;
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        response.put("hasMore", hasMore);
+        if (hasMore) {
+            Order last = items.get(items.size() - 1);
+            response.put("nextBeforeCreatedAt", last.getCreatedAt());
+            response.put("nextBeforeId", last.getId());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /*
+     * ============================
+     * EXPORT ORDERS (STREAMING NDJSON / CSV)
+     * ============================
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        OrderExportService.Format exportFormat = "csv".equalsIgnoreCase(format)
+                ? OrderExportService.Format.CSV
+                : OrderExportService.Format.NDJSON;
+        OrderFilter filter = new OrderFilter(null, status, from, to);
+
+        StreamingResponseBody body = out -> exportService.export(filter, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat == OrderExportService.Format.CSV
+                        ? new MediaType("text", "csv")
+                        : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"orders." + exportFormat.name().toLowerCase(Locale.ROOT) + "\"")
+                .body(body);
+    }
+
+    // The list endpoints keep their array body and return the newest orders only;
+    // X-Has-More says whether more exist and the Link header continues on /page
+    private ResponseEntity<List<Order>> firstPage(OrderFilter filter, int limit) {
+        int size = pageSize(limit);
+        List<Order> rows = orderRepo.findPage(filter, null, null, size + 1);
+        boolean hasMore = rows.size() > size;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header("X-Has-More", String.valueOf(hasMore));
+        if (!hasMore) {
+            return response.body(rows);
+        }
+
+        List<Order> items = rows.subList(0, size);
+        Order last = items.get(size - 1);
+        String next = UriComponentsBuilder.fromPath("/api/orders/page")
+                .queryParamIfPresent("userId", Optional.ofNullable(filter.userId()))
+                .queryParamIfPresent("status", Optional.ofNullable(filter.status()))
+                .queryParam("beforeCreatedAt", last.getCreatedAt())
+                .queryParam("beforeId", last.getId())
+                .queryParam("limit", size)
+                .encode()
+                .toUriString();
+        return response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"").body(items);
+    }
+
+    private static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
     }
 }
@@ -1,20 +1,61 @@
 package southside.demo.controllers;
 
+import southside.demo.models.BestSeller;
 import southside.demo.models.Product;
+import southside.demo.models.ProductSummary;
+import southside.demo.repository.ProductFilter;
 import southside.demo.repository.ProductRepository;
+import southside.demo.services.CatalogResponseCache;
+import southside.demo.services.CategoryLeaderboard;
+import southside.demo.services.ProductCatalogCache;
+import southside.demo.services.ProductChangeListener;
+import southside.demo.services.ProductFacets;
+import southside.demo.services.ProductSearchIndex;
+import southside.demo.services.RelatedProducts;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
 @CrossOrigin(origins = "http://localhost:3000")
 public class ProductController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_RELATED = 50;
+    private static final int MAX_BEST_SELLERS = 20;
+
     private final ProductRepository repo;
+    private final ProductCatalogCache catalog;
+    private final CatalogResponseCache catalogResponses;
+    private final ProductSearchIndex searchIndex;
+    private final ProductFacets facets;
+    private final RelatedProducts relatedProducts;
+    private final CategoryLeaderboard leaderboard;
+    private final List<ProductChangeListener> listeners;
 
-    public ProductController(ProductRepository repo) {
+    public ProductController(ProductRepository repo, ProductCatalogCache catalog,
+            CatalogResponseCache catalogResponses, ProductSearchIndex searchIndex, ProductFacets facets, RelatedProducts relatedProducts,
+            CategoryLeaderboard leaderboard, List<ProductChangeListener> listeners) {
         this.repo = repo;
+        this.catalog = catalog;
+        this.catalogResponses = catalogResponses;
+        this.searchIndex = searchIndex;
+        this.facets = facets;
+        this.relatedProducts = relatedProducts;
+        this.leaderboard = leaderboard;
+        this.listeners = listeners;
     }
 
     /*
@@ -23,8 +64,134 @@ public class ProductController {
      * ============================
      */
     @GetMapping
-    public List<Product> getAll() {
-        return repo.findAll();
+    public ResponseEntity<byte[]> getAll(WebRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogResponseCache.Rendered rendered = catalogResponses.get();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        // The two encodings are different bytes, so a strong ETag must tell them apart
+        String etag = gzip ? rendered.version() + "-gzip" : rendered.version();
+        if (request.checkNotModified(etag, rendered.lastModified())) {
+            return null; // 304, headers already set
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(rendered.gzip());
+        }
+        return response.body(rendered.json());
+    }
+
+    // gzip wins if it, or failing that "*", is listed with a q-value above zero
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0; // An unreadable weight doesn't count as consent
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = q;
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
+    /*
+     * ============================
+     * GET PRODUCT SUMMARIES (LIST VIEWS)
+     * ============================
+     */
+    @GetMapping("/summary")
+    public List<ProductSummary> getSummaries() {
+        return repo.findAllSummaries();
+    }
+
+    /*
+     * ============================
+     * SEARCH PRODUCTS
+     * ============================
+     */
+    @GetMapping("/search")
+    public List<ProductSummary> search(@RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return searchIndex.search(query, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /*
+     * ============================
+     * FACET COUNTS (FILTER SIDEBAR)
+     * ============================
+     */
+    @GetMapping("/facets")
+    public Map<String, Object> getFacets(@RequestParam(required = false) String category,
+            @RequestParam(required = false) String badge,
+            @RequestParam(required = false) String priceBucket) {
+        return facets.counts(category, badge, priceBucket);
+    }
+
+    /*
+     * ============================
+     * GET PRODUCTS PAGE (KEYSET)
+     * ============================
+     */
+    @GetMapping("/page")
+    public Map<String, Object> getPage(@RequestParam(required = false) String category,
+            @RequestParam(required = false) String badge,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Double afterPrice,
+            @RequestParam(defaultValue = "24") int limit) {
+        boolean sortByPrice = "price".equalsIgnoreCase(sort);
+        if (sortByPrice && (afterId == null) != (afterPrice == null)) {
+            // The price cursor is (afterPrice, afterId); half of it would quietly restart at page one
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "afterPrice and afterId must be given together with sort=price");
+        }
+        if (!sortByPrice && afterPrice != null) {
+            // Id pages ignore the price; accepting it would hide a cursor from the other sort
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "afterPrice needs sort=price");
+        }
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // Fetch one extra row to know whether another page exists
+        List<ProductSummary> rows = repo.findPage(new ProductFilter(category, badge, minPrice, maxPrice),
+                sortByPrice, afterId, afterPrice, size + 1);
+        boolean hasMore = rows.size() > size;
+        List<ProductSummary> items = hasMore ? rows.subList(0, size) : rows;
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        response.put("hasMore", hasMore);
+        if (hasMore) {
+            ProductSummary last = items.get(items.size() - 1);
+            response.put("nextAfterId", last.id());
+            if (sortByPrice) {
+                response.put("nextAfterPrice", last.price());
+            }
+        }
+        return response;
     }
 
     /*
@@ -33,8 +200,67 @@ public class ProductController {
      * ============================
      */
     @GetMapping("/{id}")
-    public Product getProduct(@PathVariable Long id) {
-        return repo.findById(id).orElse(null);
+    public ResponseEntity<Product> getProduct(@PathVariable Long id, WebRequest request) {
+        // Any product write moves the catalog version, so it vouches for this product too
+        if (request.checkNotModified(catalog.version(), catalog.lastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(catalog.get(id));
+    }
+
+    /*
+     * ============================
+     * FREQUENTLY BOUGHT TOGETHER
+     * ============================
+     */
+    @GetMapping("/{id}/related")
+    public List<ProductSummary> getRelated(@PathVariable Long id,
+            @RequestParam(defaultValue = "8") int limit) {
+        List<ProductSummary> related = new ArrayList<>();
+        for (long relatedId : relatedProducts.related(id, Math.min(limit, MAX_RELATED))) {
+            Product p = catalog.get(relatedId);
+            if (p != null) {
+                related.add(new ProductSummary(p.getId(), p.getName(), p.getCategory(), p.getPrice(),
+                        p.getBadge(), p.getImage()));
+            }
+        }
+        return related;
+    }
+
+    @GetMapping("/related/stats")
+    public Map<String, Object> getRelatedStats() {
+        return relatedProducts.stats();
+    }
+
+    /*
+     * ============================
+     * BEST SELLERS
+     * ============================
+     */
+    @GetMapping("/best-sellers")
+    public List<BestSeller> getBestSellers(@RequestParam(defaultValue = CategoryLeaderboard.ALL) String category,
+            @RequestParam(defaultValue = "day") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        CategoryLeaderboard.Window span;
+        try {
+            span = CategoryLeaderboard.Window.valueOf(window.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Window must be hour, day or week");
+        }
+        List<BestSeller> bestSellers = new ArrayList<>();
+        for (CategoryLeaderboard.Entry entry : leaderboard.top(category, span, Math.min(limit, MAX_BEST_SELLERS))) {
+            Product p = catalog.get(entry.productId());
+            if (p != null) {
+                bestSellers.add(new BestSeller(new ProductSummary(p.getId(), p.getName(), p.getCategory(),
+                        p.getPrice(), p.getBadge(), p.getImage()), entry.units()));
+            }
+        }
+        return bestSellers;
+    }
+
+    @GetMapping("/best-sellers/stats")
+    public Map<String, Object> getBestSellerStats() {
+        return leaderboard.stats();
     }
 
     /*
@@ -44,7 +270,9 @@ public class ProductController {
      */
     @PostMapping
     public Product createProduct(@RequestBody Product p) {
-        return repo.save(p);
+        Product saved = repo.save(p);
+        listeners.forEach(l -> l.productSaved(saved));
+        return saved;
     }
 
     /*
@@ -60,6 +288,7 @@ public class ProductController {
             return null; // or throw exception
         }
 
+        Integer previousQuantity = existing.getQuantity();
         existing.setName(p.getName());
         existing.setCategory(p.getCategory());
         existing.setSubtitle(p.getSubtitle());
@@ -69,7 +298,9 @@ public class ProductController {
         existing.setImage(p.getImage());
         existing.setQuantity(p.getQuantity());
 
-        return repo.save(existing);
+        Product saved = repo.save(existing);
+        listeners.forEach(l -> l.productSaved(saved, previousQuantity));
+        return saved;
     }
 
     /*
@@ -80,6 +311,19 @@ public class ProductController {
     @DeleteMapping("/{id}")
     public String deleteProduct(@PathVariable Long id) {
         repo.deleteById(id);
+        listeners.forEach(l -> l.productDeleted(id));
         return "Product deleted successfully";
     }
+
+    /*
+     * ============================
+     * CATALOG CACHE STATS
+     * ============================
+     */
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>(catalog.stats());
+        stats.put("responses", catalogResponses.stats());
+        return stats;
+    }
 }
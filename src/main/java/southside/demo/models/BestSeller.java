@@ -0,0 +1,5 @@
+package southside.demo.models;
+
+/** A product on a best-sellers rail with the units it sold in the requested window. */
+public record BestSeller(ProductSummary product, Long units) {
+}
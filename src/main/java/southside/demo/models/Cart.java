@@ -1,23 +1,29 @@
 package southside.demo.models;
 
 import jakarta.persistence.*;
+import southside.demo.config.BlockId;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+        @Index(name = "idx_carts_updated", columnList = "updated_at")
+})
 public class Cart {
 
+    // Block-allocated so the write-behind cart store can assign ids before the row exists
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("carts")
     private Long id;
 
     @Column(nullable = false, unique = true)
     private Long userId;
 
-    @Column(nullable = false)
-    private Double totalAmount = 0.0;
+    // Kept current by the mutation methods below, never recomputed on a read
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
 
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     private List<CartItem> items = new ArrayList<>();
@@ -47,15 +53,83 @@ public class Cart {
     // BUSINESS METHODS
     // ======================
 
+    /**
+     * Adds units of a product, merging into the existing line for it.
+     *
+     * @return the line that now holds the product
+     */
+    public CartItem addItem(Product product, int quantity) {
+        CartItem line = findItemByProductId(product.getId());
+        if (line == null) {
+            line = new CartItem();
+            line.setCart(this);
+            line.setProduct(product);
+            line.setQuantity(0);
+            line.setPrice(product.getPrice());
+            items.add(line);
+        }
+        changeQuantity(line, line.getQuantity() + quantity);
+        return line;
+    }
+
+    /** Sets a line's quantity; zero or less removes the line. */
+    public void changeQuantity(CartItem line, int quantity) {
+        if (quantity <= 0) {
+            removeItem(line);
+            return;
+        }
+        int delta = quantity - line.getQuantity();
+        line.setQuantity(quantity);
+        totalAmount = totalAmount.add(line.unitPrice().multiply(BigDecimal.valueOf(delta)));
+        touch();
+    }
+
+    public void removeItem(CartItem line) {
+        if (items.remove(line)) {
+            totalAmount = totalAmount.subtract(line.lineTotal());
+            touch();
+        }
+    }
+
+    public void clearItems() {
+        items.clear();
+        totalAmount = BigDecimal.ZERO;
+        touch();
+    }
+
+    public CartItem findItem(Long itemId) {
+        for (CartItem line : items) {
+            if (line.getId() != null && line.getId().equals(itemId)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    public CartItem findItemByProductId(Long productId) {
+        for (CartItem line : items) {
+            if (line.getProduct().getId().equals(productId)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    // Full recomputation, for carts assembled outside the methods above
     public void calculateTotal() {
-        this.totalAmount = items.stream()
-                .mapToDouble(CartItem::getItemTotal)
-                .sum();
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem line : items) {
+            total = total.add(line.lineTotal());
+        }
+        this.totalAmount = total;
     }
 
     public Double getTotalPrice() {
-        calculateTotal();
-        return this.totalAmount;
+        return totalAmount.doubleValue();
+    }
+
+    private void touch() {
+        this.updatedAt = LocalDateTime.now();
     }
 
     // ======================
@@ -70,7 +144,7 @@ public class Cart {
         return userId;
     }
 
-    public Double getTotalAmount() {
+    public BigDecimal getTotalAmount() {
         return totalAmount;
     }
 
@@ -98,7 +172,7 @@ public class Cart {
         this.userId = userId;
     }
 
-    public void setTotalAmount(Double totalAmount) {
+    public void setTotalAmount(BigDecimal totalAmount) {
         this.totalAmount = totalAmount;
     }
 
@@ -1,14 +1,17 @@
 package southside.demo.models;
 
 import jakarta.persistence.*;
+import southside.demo.config.BlockId;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.math.BigDecimal;
 
 @Entity
 @Table(name = "cart_items")
 public class CartItem {
 
+    // Block-allocated ids (not IDENTITY) so batch cart updates insert lines in one JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("cart_items")
     private Long id;
 
     @ManyToOne
@@ -31,7 +34,16 @@ public class CartItem {
     // ======================
 
     public Double getItemTotal() {
-        return this.price * this.quantity;
+        return lineTotal().doubleValue();
+    }
+
+    // Exact money arithmetic for cart totals; prices are stored as doubles
+    public BigDecimal unitPrice() {
+        return BigDecimal.valueOf(this.price);
+    }
+
+    public BigDecimal lineTotal() {
+        return unitPrice().multiply(BigDecimal.valueOf(this.quantity));
     }
 
     // ======================
@@ -0,0 +1,11 @@
+package southside.demo.models;
+
+/**
+ * One change in a batch cart update.
+ *
+ * {@code add} adds {@code quantity} units of the product, {@code set} makes
+ * the product's line exactly {@code quantity} (zero or less removes it) and
+ * {@code remove} drops the product's line.
+ */
+public record CartOperation(String op, Long productId, Integer quantity) {
+}
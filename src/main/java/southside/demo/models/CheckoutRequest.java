@@ -0,0 +1,83 @@
+package southside.demo.models;
+
+import jakarta.persistence.*;
+import southside.demo.config.BlockId;
+import java.time.LocalDateTime;
+
+/**
+ * A checkout made with an {@code Idempotency-Key}. The row is inserted at the
+ * start of the checkout transaction, so a duplicate running elsewhere waits
+ * on the unique key and then finds the order this one placed.
+ */
+@Entity
+@Table(name = "checkout_requests", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_checkout_requests_key", columnNames = { "user_id", "idempotency_key" })
+}, indexes = {
+        @Index(name = "idx_checkout_requests_created", columnList = "created_at")
+})
+public class CheckoutRequest {
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    @Id
+    @BlockId("checkout_requests")
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false, length = MAX_KEY_LENGTH)
+    private String idempotencyKey;
+
+    // Set before the transaction commits; never null once the row is visible
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    protected CheckoutRequest() {
+    }
+
+    public CheckoutRequest(Long userId, String idempotencyKey) {
+        this.userId = userId;
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // ======================
+    // GETTERS
+    // ======================
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    // ======================
+    // SETTERS
+    // ======================
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+}
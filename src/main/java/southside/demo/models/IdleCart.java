@@ -0,0 +1,5 @@
+package southside.demo.models;
+
+/** A cart picked for expiry, with its owner so the cart store can forget it too. */
+public record IdleCart(Long id, Long userId) {
+}
@@ -1,16 +1,22 @@
 package southside.demo.models;
 
 import jakarta.persistence.*;
+import southside.demo.config.BlockId;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_created", columnList = "user_id, created_at"),
+        @Index(name = "idx_orders_status_created", columnList = "status, created_at"),
+        @Index(name = "idx_orders_created", columnList = "created_at")
+})
 public class Order {
 
+    // Block-allocated ids (not IDENTITY) so checkout inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("orders")
     private Long id;
 
     @Column(nullable = false)
@@ -28,7 +34,8 @@ public class Order {
     @Column(length = 50, nullable = false)
     private String status = "pending"; // pending, processing, shipped, delivered, cancelled
 
-    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // Loaded through the entity graphs on OrderRepository, never one order at a time
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<OrderItem> items = new ArrayList<>();
 
     @Column(nullable = false, updatable = false)
@@ -1,25 +1,34 @@
 package southside.demo.models;
 
 import jakarta.persistence.*;
+import southside.demo.config.BlockId;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
 @Table(name = "order_items")
 public class OrderItem {
 
+    // Block-allocated ids (not IDENTITY) so checkout inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("order_items")
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
     @JsonIgnore
     private Order order;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
+    @JsonIgnore
     private Product product;
 
+    // The same product without its description text; what order reads fetch and serialize
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", insertable = false, updatable = false)
+    private ProductCard productCard;
+
     @Column(nullable = false)
     private Integer quantity;
 
@@ -50,6 +59,16 @@ public class OrderItem {
         return product;
     }
 
+    /**
+     * The product as order views show it. Items loaded through the order
+     * graphs have it fetched; items built at checkout take it from their
+     * {@link Product}, which is already loaded.
+     */
+    @JsonProperty("product")
+    public ProductCard getProductCard() {
+        return productCard != null ? productCard : product == null ? null : ProductCard.of(product);
+    }
+
     public Integer getQuantity() {
         return quantity;
     }
@@ -0,0 +1,5 @@
+package southside.demo.models;
+
+/** Which product an order contains, without the rest of the item row. */
+public record OrderLine(Long orderId, Long productId) {
+}
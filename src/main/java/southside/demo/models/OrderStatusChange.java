@@ -0,0 +1,11 @@
+package southside.demo.models;
+
+import java.time.LocalDateTime;
+
+/** An order moving to a new status, as pushed to the order-tracking stream. */
+public record OrderStatusChange(Long orderId, String status, LocalDateTime updatedAt) {
+
+    public static OrderStatusChange of(Order order) {
+        return new OrderStatusChange(order.getId(), order.getStatus(), order.getUpdatedAt());
+    }
+}
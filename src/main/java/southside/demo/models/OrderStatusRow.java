@@ -0,0 +1,10 @@
+package southside.demo.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns status transitions and sales rollups read; selecting this never
+ * touches items or products.
+ */
+public record OrderStatusRow(Long id, Long userId, String status, Double total, LocalDateTime createdAt) {
+}
@@ -0,0 +1,92 @@
+package southside.demo.models;
+
+import jakarta.persistence.*;
+import southside.demo.config.BlockId;
+import java.time.LocalDateTime;
+
+/**
+ * Work left for after a commit. Rows are inserted in the transaction that
+ * caused them and deleted by the dispatcher in the transaction that handles
+ * them, so nothing is lost to a crash in between.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        // Order scans look up whether an order's event is still waiting
+        @Index(name = "idx_outbox_events_aggregate", columnList = "aggregate_id, type")
+})
+public class OutboxEvent {
+
+    public static final String ORDER_PLACED = "order.placed";
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    @Id
+    @BlockId("outbox_events")
+    private Long id;
+
+    @Column(length = 50, nullable = false)
+    private String type;
+
+    // Id of the row the event is about, e.g. the order for ORDER_PLACED
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    protected OutboxEvent() {
+    }
+
+    public OutboxEvent(String type, Long aggregateId) {
+        this.type = type;
+        this.aggregateId = aggregateId;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // ======================
+    // BUSINESS METHODS
+    // ======================
+
+    public void recordFailure(Exception e) {
+        attempts++;
+        String message = e.getClass().getSimpleName() + ": " + e.getMessage();
+        lastError = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    // ======================
+    // GETTERS
+    // ======================
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
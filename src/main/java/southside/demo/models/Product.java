@@ -1,9 +1,17 @@
 package southside.demo.models;
 
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "products")
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_price", columnList = "price, id"),
+        @Index(name = "idx_products_category", columnList = "category, id"),
+        @Index(name = "idx_products_category_price", columnList = "category, price, id"),
+        @Index(name = "idx_products_badge", columnList = "badge, id"),
+        @Index(name = "idx_products_badge_price", columnList = "badge, price, id")
+})
 public class Product {
 
     @Id
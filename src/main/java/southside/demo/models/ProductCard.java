@@ -0,0 +1,81 @@
+package southside.demo.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Read-only view of a {@link Product} row without the description TEXT
+ * column, for order views that fetch the products of every item. Products
+ * are written through {@link Product} only.
+ */
+@Entity
+@Immutable
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+@Table(name = "products")
+public class ProductCard {
+
+    @Id
+    private Long id;
+
+    private String name;
+    private String category;
+    private String subtitle;
+    private Double price;
+    private String badge;
+    private String image;
+    private Integer quantity;
+
+    protected ProductCard() {
+    }
+
+    // For items built in this session, whose products were loaded as Product
+    static ProductCard of(Product p) {
+        ProductCard card = new ProductCard();
+        card.id = p.getId();
+        card.name = p.getName();
+        card.category = p.getCategory();
+        card.subtitle = p.getSubtitle();
+        card.price = p.getPrice();
+        card.badge = p.getBadge();
+        card.image = p.getImage();
+        card.quantity = p.getQuantity();
+        return card;
+    }
+
+    // ======================
+    // GETTERS
+    // ======================
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getSubtitle() {
+        return subtitle;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public String getBadge() {
+        return badge;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+}
@@ -0,0 +1,41 @@
+package southside.demo.models;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/** Units and revenue per product over every order that is not cancelled. */
+@Entity
+@Table(name = "product_sales", indexes = {
+        @Index(name = "idx_product_sales_units", columnList = "units")
+})
+public class ProductSales {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false, precision = 16, scale = 2)
+    private BigDecimal revenue;
+
+    protected ProductSales() {
+    }
+
+    // ======================
+    // GETTERS
+    // ======================
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Long getUnits() {
+        return units;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+}
@@ -0,0 +1,8 @@
+package southside.demo.models;
+
+/**
+ * The columns a product list view needs. Queries that select this instead of
+ * {@link Product} never read the description TEXT column.
+ */
+public record ProductSummary(Long id, String name, String category, Double price, String badge, String image) {
+}
@@ -0,0 +1,5 @@
+package southside.demo.models;
+
+/** Units and line revenue of one product summed over a set of orders. */
+public record ProductUnits(Long productId, Long units, Double revenue) {
+}
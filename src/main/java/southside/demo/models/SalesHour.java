@@ -0,0 +1,58 @@
+package southside.demo.models;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Orders placed in one hour, by creation time. Cancellations are kept in
+ * their own columns against the hour the order was placed, so net revenue is
+ * {@code revenue - cancelledRevenue}.
+ */
+@Entity
+@Table(name = "sales_hourly")
+public class SalesHour {
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false, precision = 16, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private Long cancelledCount;
+
+    @Column(name = "cancelled_revenue", nullable = false, precision = 16, scale = 2)
+    private BigDecimal cancelledRevenue;
+
+    protected SalesHour() {
+    }
+
+    // ======================
+    // GETTERS
+    // ======================
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public Long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    public BigDecimal getCancelledRevenue() {
+        return cancelledRevenue;
+    }
+}
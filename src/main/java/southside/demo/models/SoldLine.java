@@ -0,0 +1,7 @@
+package southside.demo.models;
+
+import java.time.LocalDateTime;
+
+/** Units of one product sold on an order, with its category and when the order was placed. */
+public record SoldLine(Long productId, String category, Integer quantity, LocalDateTime placedAt) {
+}
@@ -0,0 +1,31 @@
+package southside.demo.models;
+
+import jakarta.persistence.*;
+
+/** Number of orders currently in a status. */
+@Entity
+@Table(name = "order_status_counts")
+public class StatusCount {
+
+    @Id
+    @Column(length = 50)
+    private String status;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    protected StatusCount() {
+    }
+
+    // ======================
+    // GETTERS
+    // ======================
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+}
@@ -0,0 +1,7 @@
+package southside.demo.models;
+
+import java.util.List;
+
+/** Moves every listed order to {@code status}, where the transition is allowed. */
+public record StatusTransitionRequest(List<Long> ids, String status) {
+}
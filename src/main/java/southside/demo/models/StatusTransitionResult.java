@@ -0,0 +1,10 @@
+package southside.demo.models;
+
+/**
+ * What a bulk transition did to one order. {@code outcome} is {@code updated},
+ * {@code unchanged} (already in the target status), {@code invalid_transition},
+ * {@code not_found} or {@code not_applied} (its chunk failed, nothing was
+ * changed); {@code previousStatus} is null for the last two.
+ */
+public record StatusTransitionResult(Long id, String outcome, String previousStatus) {
+}
@@ -0,0 +1,63 @@
+package southside.demo.models;
+
+import jakarta.persistence.*;
+import southside.demo.config.BlockId;
+import java.time.LocalDateTime;
+
+/**
+ * Stock taken from an in-memory hot-product counter that has not yet been
+ * written back to {@code products.quantity}. Rows are inserted in the checkout
+ * transaction and deleted by the flush that applies them.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_product", columnList = "product_id")
+})
+public class StockReservation {
+
+    @Id
+    @BlockId("stock_reservations")
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    protected StockReservation() {
+    }
+
+    public StockReservation(Long productId, Integer quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // ======================
+    // GETTERS
+    // ======================
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
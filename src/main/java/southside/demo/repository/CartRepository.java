@@ -1,13 +1,45 @@
 package southside.demo.repository;
 
 import southside.demo.models.Cart;
+import southside.demo.models.IdleCart;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import jakarta.persistence.LockModeType;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
+    @EntityGraph(attributePaths = { "items", "items.product" })
     Optional<Cart> findByUserId(Long userId);
 
     boolean existsByUserId(Long userId);
+
+    // Serializes mutations of one cart (e.g. two open tabs); only the cart row is locked,
+    // its items and their products load afterwards without a lock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.userId = :userId")
+    Optional<Cart> findForUpdateByUserId(@Param("userId") Long userId);
+
+    // Locks a batch of idle carts so a click can't revive one while it is being deleted
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new southside.demo.models.IdleCart(c.id, c.userId) FROM Cart c "
+            + "WHERE c.updatedAt < :cutoff ORDER BY c.updatedAt, c.id")
+    List<IdleCart> lockIdleCarts(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM CartItem i WHERE i.cart.id IN :cartIds")
+    int deleteItemsByCartIdIn(@Param("cartIds") Collection<Long> cartIds);
+
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,18 @@
+package southside.demo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import southside.demo.models.CheckoutRequest;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface CheckoutRequestRepository extends JpaRepository<CheckoutRequest, Long> {
+
+    Optional<CheckoutRequest> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM CheckoutRequest r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
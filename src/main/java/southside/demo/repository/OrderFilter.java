@@ -0,0 +1,10 @@
+package southside.demo.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional order filters; any null field is ignored. The createdAt window is
+ * inclusive of {@code from} and exclusive of {@code to}.
+ */
+public record OrderFilter(Long userId, String status, LocalDateTime from, LocalDateTime to) {
+}
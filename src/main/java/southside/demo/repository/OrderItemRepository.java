@@ -1,11 +1,30 @@
 package southside.demo.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import southside.demo.models.OrderItem;
+import southside.demo.models.OrderLine;
+import southside.demo.models.ProductUnits;
+import southside.demo.models.SoldLine;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     List<OrderItem> findByOrderId(Long orderId);
+
+    // Aggregated in SQL so rollups never load the item rows themselves
+    @Query("SELECT new southside.demo.models.ProductUnits(i.product.id, SUM(i.quantity), SUM(i.price * i.quantity)) "
+            + "FROM OrderItem i WHERE i.order.id IN :orderIds GROUP BY i.product.id")
+    List<ProductUnits> sumByProduct(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("SELECT new southside.demo.models.OrderLine(i.order.id, i.product.id) "
+            + "FROM OrderItem i WHERE i.order.id IN :orderIds ORDER BY i.order.id")
+    List<OrderLine> findLines(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("SELECT new southside.demo.models.SoldLine(i.product.id, i.product.category, i.quantity, i.order.createdAt) "
+            + "FROM OrderItem i WHERE i.order.id IN :orderIds AND i.order.status <> 'cancelled'")
+    List<SoldLine> findSoldLines(@Param("orderIds") Collection<Long> orderIds);
 }
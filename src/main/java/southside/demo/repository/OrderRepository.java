@@ -1,15 +1,93 @@
 package southside.demo.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import southside.demo.models.Order;
+import southside.demo.models.OrderStatusRow;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    // Order reads fetch items and their products in the same statement
+    // instead of one query per order and per item product. Products come as
+    // ProductCard, so the description column is never read.
+
+    @Override
+    @EntityGraph(attributePaths = { "items", "items.productCard" })
+    List<Order> findAll();
+
+    @EntityGraph(attributePaths = { "items", "items.productCard" })
+    Optional<Order> findWithItemsById(Long id);
+
+    // A page of orders is two statements: the ids, then the graph for those ids
+    @Query("SELECT o.id FROM Order o ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findIdsNewestFirst(Pageable pageable);
+
+    @EntityGraph(attributePaths = { "items", "items.productCard" })
+    List<Order> findWithItemsByIdIn(Collection<Long> ids, Sort sort);
+
     List<Order> findByUserId(Long userId);
 
+    // Status transitions read three columns under a row lock, never the order graph
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new southside.demo.models.OrderStatusRow(o.id, o.userId, o.status, o.total, o.createdAt) "
+            + "FROM Order o WHERE o.id IN :ids ORDER BY o.id")
+    List<OrderStatusRow> lockStatusRows(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT o.id FROM Order o WHERE o.id > :afterId ORDER BY o.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT o.id FROM Order o WHERE o.createdAt >= :since AND o.id > :afterId ORDER BY o.id")
+    List<Long> findIdsCreatedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId,
+            Limit limit);
+
+    // Keyset scan for the rollup backfill
+    @Query("SELECT new southside.demo.models.OrderStatusRow(o.id, o.userId, o.status, o.total, o.createdAt) "
+            + "FROM Order o WHERE o.id > :afterId ORDER BY o.id")
+    List<OrderStatusRow> findStatusRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status, o.updatedAt = :updatedAt WHERE o.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") String status,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    @EntityGraph(attributePaths = { "items", "items.productCard" })
     List<Order> findByStatus(String status);
 
+    @EntityGraph(attributePaths = { "items", "items.productCard" })
     List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    /**
+     * Keyset page of fully loaded orders, newest first. Limiting the ids first
+     * keeps the row limit in SQL; a limit on the fetch-joined graph itself
+     * would be applied in memory.
+     */
+    default List<Order> findPage(OrderFilter filter, LocalDateTime beforeCreatedAt, Long beforeId,
+            int limit) {
+        List<Long> ids = findPageIds(filter, beforeCreatedAt, beforeId, limit);
+        return ids.isEmpty() ? List.of() : findWithItemsByIdIn(ids, NEWEST_FIRST);
+    }
+
+    default List<Order> findByUserIdOrderByCreatedAtDesc(Long userId, int limit) {
+        return findPage(new OrderFilter(userId, null, null, null), null, null, limit);
+    }
+
+    default List<Order> findByStatus(String status, int limit) {
+        return findPage(new OrderFilter(null, status, null, null), null, null, limit);
+    }
 }
@@ -0,0 +1,16 @@
+package southside.demo.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * Keyset page of order ids, newest first by (createdAt, id). Pass the
+     * createdAt/id of the last order of the previous page to continue, or
+     * neither for the first page.
+     *
+     * @throws IllegalArgumentException if only one half of the cursor is given
+     */
+    List<Long> findPageIds(OrderFilter filter, LocalDateTime beforeCreatedAt, Long beforeId, int limit);
+}
@@ -0,0 +1,63 @@
+package southside.demo.repository;
+
+import southside.demo.models.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<Long> findPageIds(OrderFilter filter, LocalDateTime beforeCreatedAt, Long beforeId, int limit) {
+        if ((beforeCreatedAt == null) != (beforeId == null)) {
+            throw new IllegalArgumentException("beforeCreatedAt and beforeId must be given together");
+        }
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Order> o = query.from(Order.class);
+
+        List<Predicate> where = filterPredicates(cb, o, filter);
+        if (beforeId != null) {
+            // (createdAt, id) < (beforeCreatedAt, beforeId)
+            where.add(cb.or(
+                    cb.lessThan(o.get("createdAt"), beforeCreatedAt),
+                    cb.and(cb.equal(o.get("createdAt"), beforeCreatedAt), cb.lessThan(o.get("id"), beforeId))));
+        }
+
+        query.select(o.get("id"))
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(cb.desc(o.get("createdAt")), cb.desc(o.get("id")));
+        return em.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    static List<Predicate> filterPredicates(CriteriaBuilder cb, Root<Order> o, OrderFilter filter) {
+        List<Predicate> where = new ArrayList<>();
+        if (filter == null) {
+            return where;
+        }
+        if (filter.userId() != null) {
+            where.add(cb.equal(o.get("userId"), filter.userId()));
+        }
+        if (filter.status() != null) {
+            where.add(cb.equal(o.get("status"), filter.status()));
+        }
+        if (filter.from() != null) {
+            where.add(cb.greaterThanOrEqualTo(o.get("createdAt"), filter.from()));
+        }
+        if (filter.to() != null) {
+            where.add(cb.lessThan(o.get("createdAt"), filter.to()));
+        }
+        return where;
+    }
+}
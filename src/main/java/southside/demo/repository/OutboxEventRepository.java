@@ -0,0 +1,32 @@
+package southside.demo.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import southside.demo.models.OutboxEvent;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Locked so two dispatchers never hand the same event out at once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OutboxEvent e WHERE e.attempts < :maxAttempts ORDER BY e.id")
+    List<OutboxEvent> lockPending(@Param("maxAttempts") int maxAttempts, Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id = :id AND e.attempts < :maxAttempts")
+    Optional<OutboxEvent> lockPendingById(@Param("id") Long id, @Param("maxAttempts") int maxAttempts);
+
+    // Which of these rows still have an event of this type waiting, pending or dead
+    @Query("SELECT e.aggregateId FROM OutboxEvent e WHERE e.type = :type AND e.aggregateId IN :ids")
+    List<Long> findAggregateIds(@Param("type") String type, @Param("ids") Collection<Long> ids);
+
+    long countByAttemptsLessThan(int maxAttempts);
+
+    long countByAttemptsGreaterThanEqual(int maxAttempts);
+}
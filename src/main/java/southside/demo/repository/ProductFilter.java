@@ -0,0 +1,7 @@
+package southside.demo.repository;
+
+/**
+ * Optional catalog filters; any null field is ignored.
+ */
+public record ProductFilter(String category, String badge, Double minPrice, Double maxPrice) {
+}
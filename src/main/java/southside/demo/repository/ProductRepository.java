@@ -1,8 +1,29 @@
 package southside.demo.repository;
 
 import southside.demo.models.Product;
+import southside.demo.models.ProductSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.List;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
 
+    @Query("SELECT new southside.demo.models.ProductSummary(p.id, p.name, p.category, p.price, p.badge, p.image) "
+            + "FROM Product p ORDER BY p.id")
+    List<ProductSummary> findAllSummaries();
+
+    @Query("SELECT new southside.demo.models.ProductSummary(p.id, p.name, p.category, p.price, p.badge, p.image) "
+            + "FROM Product p WHERE p.id > :id ORDER BY p.id")
+    List<ProductSummary> findSummariesAfter(@Param("id") Long id, Limit limit);
+
+    // Chunked full scan for rebuilding in-memory indexes
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Unconditional; callers have already checked the stock (see HotStockCounters)
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :quantity WHERE p.id = :id AND p.quantity IS NOT NULL")
+    int subtractStock(@Param("id") Long id, @Param("quantity") long quantity);
 }
@@ -0,0 +1,38 @@
+package southside.demo.repository;
+
+import southside.demo.models.ProductSummary;
+import java.util.List;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Keyset (seek) page of catalog summaries. Rows come back strictly after the
+     * given cursor, so deep pages cost the same as the first one.
+     *
+     * @param sortByPrice order by (price, id) instead of id
+     * @param afterId     id of the last row of the previous page, or null
+     * @param afterPrice  price of the last row of the previous page (price sort only)
+     */
+    List<ProductSummary> findPage(ProductFilter filter, boolean sortByPrice, Long afterId, Double afterPrice, int limit);
+
+    /**
+     * Takes stock for several products in one conditional UPDATE. A product
+     * is only decremented if it has at least the requested quantity left (a
+     * null quantity means stock isn't tracked and always matches).
+     *
+     * @param quantities product id -> units to take
+     * @return number of products updated; less than {@code quantities.size()}
+     *         means at least one line was short and the caller must roll back
+     */
+    int reserveStock(Map<Long, Integer> quantities);
+
+    /**
+     * Puts units back for several products in one UPDATE, e.g. for a cancelled
+     * order. Products whose stock isn't tracked are left alone. A negative
+     * quantity takes units again, without checking what is left.
+     *
+     * @param quantities product id -> units to put back
+     */
+    int restoreStock(Map<Long, Integer> quantities);
+}
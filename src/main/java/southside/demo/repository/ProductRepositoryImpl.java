@@ -0,0 +1,115 @@
+package southside.demo.repository;
+
+import southside.demo.models.Product;
+import southside.demo.models.ProductSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<ProductSummary> findPage(ProductFilter filter, boolean sortByPrice, Long afterId, Double afterPrice,
+            int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<ProductSummary> query = cb.createQuery(ProductSummary.class);
+        Root<Product> p = query.from(Product.class);
+
+        List<Predicate> where = filterPredicates(cb, p, filter);
+
+        if (sortByPrice) {
+            where.add(cb.isNotNull(p.get("price")));
+            if (afterPrice != null && afterId != null) {
+                // (price, id) > (afterPrice, afterId)
+                where.add(cb.or(
+                        cb.greaterThan(p.get("price"), afterPrice),
+                        cb.and(cb.equal(p.get("price"), afterPrice), cb.greaterThan(p.get("id"), afterId))));
+            }
+            query.orderBy(cb.asc(p.get("price")), cb.asc(p.get("id")));
+        } else {
+            if (afterId != null) {
+                where.add(cb.greaterThan(p.get("id"), afterId));
+            }
+            query.orderBy(cb.asc(p.get("id")));
+        }
+
+        query.select(cb.construct(ProductSummary.class,
+                p.get("id"), p.get("name"), p.get("category"), p.get("price"), p.get("badge"), p.get("image")))
+                .where(where.toArray(new Predicate[0]));
+        return em.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public int reserveStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+        String amount = amountCase(quantities.size());
+
+        // One statement for the whole cart; rows are locked in primary key order
+        Query update = em.createQuery("UPDATE Product p SET p.quantity = p.quantity - " + amount
+                + " WHERE p.id IN :ids AND (p.quantity IS NULL OR p.quantity >= " + amount + ")");
+        return bindAmounts(update, quantities).executeUpdate();
+    }
+
+    @Override
+    public int restoreStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+        Query update = em.createQuery("UPDATE Product p SET p.quantity = p.quantity + " + amountCase(quantities.size())
+                + " WHERE p.id IN :ids AND p.quantity IS NOT NULL");
+        return bindAmounts(update, quantities).executeUpdate();
+    }
+
+    // CASE p.id WHEN :id0 THEN :qty0 ... END, bound by bindAmounts
+    private static String amountCase(int size) {
+        StringBuilder amount = new StringBuilder("CASE p.id");
+        for (int i = 0; i < size; i++) {
+            amount.append(" WHEN :id").append(i).append(" THEN :qty").append(i);
+        }
+        return amount.append(" END").toString();
+    }
+
+    private static Query bindAmounts(Query update, Map<Long, Integer> quantities) {
+        int i = 0;
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            update.setParameter("id" + i, line.getKey());
+            update.setParameter("qty" + i, line.getValue());
+            i++;
+        }
+        return update.setParameter("ids", quantities.keySet());
+    }
+
+    static List<Predicate> filterPredicates(CriteriaBuilder cb, Root<Product> p, ProductFilter filter) {
+        List<Predicate> where = new ArrayList<>();
+        if (filter == null) {
+            return where;
+        }
+        if (filter.category() != null) {
+            where.add(cb.equal(p.get("category"), filter.category()));
+        }
+        if (filter.badge() != null) {
+            where.add(cb.equal(p.get("badge"), filter.badge()));
+        }
+        if (filter.minPrice() != null) {
+            where.add(cb.greaterThanOrEqualTo(p.get("price"), filter.minPrice()));
+        }
+        if (filter.maxPrice() != null) {
+            where.add(cb.lessThanOrEqualTo(p.get("price"), filter.maxPrice()));
+        }
+        return where;
+    }
+}
@@ -0,0 +1,11 @@
+package southside.demo.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import southside.demo.models.ProductSales;
+import java.util.List;
+
+public interface ProductSalesRepository extends JpaRepository<ProductSales, Long> {
+
+    List<ProductSales> findAllByOrderByUnitsDescProductIdAsc(Limit limit);
+}
@@ -0,0 +1,12 @@
+package southside.demo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import southside.demo.models.SalesHour;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SalesHourRepository extends JpaRepository<SalesHour, LocalDateTime> {
+
+    // Bounded by the hours in the range, not by the orders in it
+    List<SalesHour> findByBucketStartBetweenOrderByBucketStart(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,7 @@
+package southside.demo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import southside.demo.models.StatusCount;
+
+public interface StatusCountRepository extends JpaRepository<StatusCount, String> {
+}
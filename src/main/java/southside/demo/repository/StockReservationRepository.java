@@ -0,0 +1,17 @@
+package southside.demo.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import southside.demo.models.StockReservation;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findAllByOrderByIdAsc(Limit limit);
+
+    // Units reserved in memory but not yet subtracted from products.quantity
+    @Query("SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r WHERE r.productId = :productId")
+    long pendingQuantity(@Param("productId") Long productId);
+}
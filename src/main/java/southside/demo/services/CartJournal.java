@@ -0,0 +1,176 @@
+package southside.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of cart states for {@link WriteBehindCartStore}.
+ *
+ * Every record holds a whole cart, so replaying only needs the last record per
+ * user. The log is split into segments named after their first sequence
+ * number; the store rolls to a new segment after each write-back and drops the
+ * oldest segments once nothing in them is still waiting to be written.
+ */
+class CartJournal implements AutoCloseable {
+
+    record Line(Long id, Long productId, Integer quantity, Double price) {
+    }
+
+    // removed = the cart left the store through checkout and must not be replayed
+    record Entry(long seq, Long userId, Long cartId, boolean removed, BigDecimal total,
+            LocalDateTime updatedAt, List<Line> items) {
+    }
+
+    private record Segment(Path path, long lastSeq) {
+    }
+
+    private static final String PREFIX = "cart-journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final boolean fsync;
+    private final ObjectMapper mapper;
+
+    private final Deque<Segment> sealed = new ArrayDeque<>();
+    private FileChannel current;
+    private Path currentPath;
+    private long lastSeq;
+
+    CartJournal(Path dir, boolean fsync, ObjectMapper mapper) {
+        this.dir = dir;
+        this.fsync = fsync;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Reads every segment on disk and returns the last record per user, in
+     * sequence order. Must be called once before the first append.
+     */
+    synchronized List<Entry> recover() {
+        Map<Long, Entry> latest = new LinkedHashMap<>();
+        try {
+            Files.createDirectories(dir);
+            for (Path segment : segments()) {
+                long segmentLast = 0;
+                try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        Entry entry;
+                        try {
+                            entry = mapper.readValue(line, Entry.class);
+                        } catch (IOException e) {
+                            // A torn final line from a crash mid-append was never acknowledged
+                            break;
+                        }
+                        latest.remove(entry.userId());
+                        latest.put(entry.userId(), entry);
+                        segmentLast = entry.seq();
+                        lastSeq = Math.max(lastSeq, entry.seq());
+                    }
+                }
+                sealed.addLast(new Segment(segment, segmentLast));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /** Appends a record and returns its sequence number once it is on disk. */
+    synchronized long append(Long userId, Long cartId, boolean removed, BigDecimal total,
+            LocalDateTime updatedAt, List<Line> items) {
+        long seq = lastSeq + 1;
+        try {
+            if (current == null) {
+                open(seq);
+            }
+            byte[] json = mapper.writeValueAsBytes(new Entry(seq, userId, cartId, removed, total, updatedAt, items));
+            ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+            while (buffer.hasRemaining()) {
+                current.write(buffer);
+            }
+            if (fsync) {
+                current.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastSeq = seq;
+        return seq;
+    }
+
+    /** Seals the current segment; the next append starts a new one. */
+    synchronized void roll() {
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sealed.addLast(new Segment(currentPath, lastSeq));
+        current = null;
+        currentPath = null;
+    }
+
+    /** Deletes sealed segments whose records are all older than {@code oldestNeeded}. */
+    synchronized void truncate(long oldestNeeded) {
+        while (!sealed.isEmpty() && sealed.peekFirst().lastSeq() < oldestNeeded) {
+            try {
+                Files.deleteIfExists(sealed.removeFirst().path());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+        }
+    }
+
+    private void open(long firstSeq) throws IOException {
+        currentPath = dir.resolve(String.format("%s%019d%s", PREFIX, firstSeq, SUFFIX));
+        current = FileChannel.open(currentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    // Zero-padded names sort in sequence order
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+    }
+}
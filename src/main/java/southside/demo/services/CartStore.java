@@ -0,0 +1,39 @@
+package southside.demo.services;
+
+import southside.demo.models.Cart;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Where carts live between clicks.
+ *
+ * {@link JpaCartStore} (the default) reads and writes the {@code carts} and
+ * {@code cart_items} tables on every call. {@link WriteBehindCartStore}
+ * ({@code cart.store=write-behind}) keeps active carts in memory and writes
+ * them back in batches. Mutations go through {@code update} so either store can
+ * decide how the change is applied and made durable; a mutation that throws
+ * leaves the cart unchanged.
+ */
+public interface CartStore {
+
+    Optional<Cart> find(Long userId);
+
+    Optional<Cart> update(Long userId, Consumer<Cart> mutation);
+
+    Cart updateOrCreate(Long userId, Consumer<Cart> mutation);
+
+    /**
+     * Makes the tables hold the user's current cart, within the caller's
+     * transaction, and keeps the cart from changing until that transaction
+     * completes. Checkout calls this before it reads the cart.
+     */
+    void flush(Long userId);
+
+    /**
+     * Forgets the carts of these users after they have been deleted from the
+     * tables, so a stale copy is neither served nor written back. A cart
+     * changed since it was picked for deletion is kept.
+     */
+    void evict(Collection<Long> userIds);
+}
@@ -0,0 +1,93 @@
+package southside.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The full product list as ready-to-send bytes, plain and gzipped.
+ *
+ * Rendered once per {@link ProductCatalogCache#version()}; until the next
+ * product write every {@code GET /api/products} is a byte copy, with no
+ * serialization or compression per request.
+ */
+@Component
+public class CatalogResponseCache {
+
+    public record Rendered(String version, long lastModified, byte[] json, byte[] gzip) {
+    }
+
+    private final ProductCatalogCache catalog;
+    private final ObjectMapper mapper;
+
+    private volatile Rendered current;
+
+    // Not a monitor: rendering may load the catalog, and a virtual thread must not pin on JDBC
+    private final ReentrantLock renderLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+
+    public CatalogResponseCache(ProductCatalogCache catalog, ObjectMapper mapper) {
+        this.catalog = catalog;
+        this.mapper = mapper;
+    }
+
+    public Rendered get() {
+        Rendered rendered = current;
+        if (rendered != null && rendered.version().equals(catalog.version())) {
+            hits.increment();
+            return rendered;
+        }
+        renderLock.lock();
+        try {
+            // Read before the products. The catalog moves its version only once a write
+            // is in place, so one landing in between can only make the bytes newer than
+            // their version, which costs a re-render, never a stale 304
+            String version = catalog.version();
+            long lastModified = catalog.lastModified();
+            rendered = current;
+            if (rendered != null && rendered.version().equals(version)) {
+                hits.increment();
+                return rendered;
+            }
+            rendered = render(version, lastModified);
+            current = rendered;
+            return rendered;
+        } finally {
+            renderLock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Rendered rendered = current;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("renders", renders.sum());
+        stats.put("version", rendered == null ? null : rendered.version());
+        stats.put("jsonBytes", rendered == null ? 0 : rendered.json().length);
+        stats.put("gzipBytes", rendered == null ? 0 : rendered.gzip().length);
+        return stats;
+    }
+
+    private Rendered render(String version, long lastModified) {
+        try {
+            byte[] json = mapper.writeValueAsBytes(catalog.getAll());
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            renders.increment();
+            return new Rendered(version, lastModified, json, compressed.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
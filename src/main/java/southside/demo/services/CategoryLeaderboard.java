@@ -0,0 +1,341 @@
+package southside.demo.services;
+
+import southside.demo.models.Order;
+import southside.demo.models.OrderItem;
+import southside.demo.models.OutboxEvent;
+import southside.demo.models.ProductCard;
+import southside.demo.models.SoldLine;
+import southside.demo.repository.OrderItemRepository;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.OutboxEventRepository;
+import southside.demo.util.LongObjectHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Best sellers per product category over the last hour, day and week.
+ *
+ * Each category keeps, per window, a ring of time buckets. Each bucket is a
+ * Space-Saving sketch holding at most {@code leaderboard.capacity} products,
+ * so memory doesn't grow with the catalog and long-tail products can't push
+ * out the real best sellers. Units come from the {@code order.placed} outbox
+ * event, bucketed by when the order was placed. At startup the last week is
+ * refilled from stored orders, except those the event still has to count:
+ * orders whose event is in the outbox, or was delivered while the scan ran
+ * ({@link ScanWrites}).
+ *
+ * Writers lock one category. Every {@code leaderboard.refresh-interval} the
+ * buckets still inside each window are merged into an immutable ranking,
+ * and readers only ever see a published ranking. Cancellations are not
+ * subtracted, so cancelled units stay counted until they leave the window.
+ * An order whose event is dead in the outbox is never counted.
+ */
+@Component
+public class CategoryLeaderboard implements OrderEventListener {
+
+    public static final String ALL = "all";
+
+    public enum Window {
+        HOUR(Duration.ofMinutes(5), 12),
+        DAY(Duration.ofHours(1), 24),
+        WEEK(Duration.ofHours(6), 28);
+
+        final long bucketMillis;
+        final int buckets;
+
+        Window(Duration bucket, int buckets) {
+            this.bucketMillis = bucket.toMillis();
+            this.buckets = buckets;
+        }
+
+        Duration length() {
+            return Duration.ofMillis(bucketMillis * buckets);
+        }
+    }
+
+    public record Entry(long productId, long units) {
+    }
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final OrderRepository orderRepo;
+    private final OrderItemRepository orderItemRepo;
+    private final OutboxEventRepository outboxRepo;
+    private final Clock clock;
+    private final int capacity;
+    private final int size;
+
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    private final ScanWrites scanWrites = new ScanWrites(); // guarded by itself
+    private final LongAdder units = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    @Autowired
+    public CategoryLeaderboard(OrderRepository orderRepo, OrderItemRepository orderItemRepo,
+            OutboxEventRepository outboxRepo,
+            @Value("${leaderboard.capacity:64}") int capacity,
+            @Value("${leaderboard.size:20}") int size) {
+        this(orderRepo, orderItemRepo, outboxRepo, Clock.systemDefaultZone(), capacity, size);
+    }
+
+    CategoryLeaderboard(OrderRepository orderRepo, OrderItemRepository orderItemRepo,
+            OutboxEventRepository outboxRepo, Clock clock, int capacity, int size) {
+        this.orderRepo = orderRepo;
+        this.orderItemRepo = orderItemRepo;
+        this.outboxRepo = outboxRepo;
+        this.clock = clock;
+        this.capacity = capacity;
+        this.size = size;
+    }
+
+    // Refills the last week from stored orders
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        LocalDateTime since = LocalDateTime.now(clock).minus(Window.WEEK.length());
+        synchronized (scanWrites) {
+            scanWrites.scanStarted();
+        }
+        try {
+            Long lastId = Long.MIN_VALUE;
+            List<Long> chunk;
+            do {
+                chunk = orderRepo.findIdsCreatedSince(since, lastId, Limit.of(LOAD_CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                // After the ids, so a delivery this misses has already been through orderPlaced
+                Set<Long> undelivered = new HashSet<>(outboxRepo.findAggregateIds(OutboxEvent.ORDER_PLACED, chunk));
+                List<Long> counted = new ArrayList<>(chunk.size());
+                synchronized (scanWrites) {
+                    for (Long id : chunk) {
+                        if (!undelivered.contains(id) && !scanWrites.superseded(id)) {
+                            counted.add(id);
+                        }
+                    }
+                }
+                if (!counted.isEmpty()) {
+                    for (SoldLine line : orderItemRepo.findSoldLines(counted)) {
+                        record(line.category(), line.productId(), line.quantity(), line.placedAt());
+                    }
+                }
+                lastId = chunk.get(chunk.size() - 1);
+            } while (chunk.size() == LOAD_CHUNK_SIZE);
+        } finally {
+            synchronized (scanWrites) {
+                scanWrites.scanFinished();
+            }
+        }
+        refresh();
+    }
+
+    @Override
+    public void orderPlaced(Order order) {
+        synchronized (scanWrites) {
+            // Before the delivery commits, so a running scan can't also count it
+            scanWrites.written(order.getId());
+        }
+        List<SoldLine> lines = new ArrayList<>(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            ProductCard product = item.getProductCard();
+            lines.add(new SoldLine(product.getId(), product.getCategory(), item.getQuantity(), order.getCreatedAt()));
+        }
+        Runnable apply = () -> {
+            for (SoldLine line : lines) {
+                record(line.category(), line.productId(), line.quantity(), line.placedAt());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Counted once the event is gone for good, not on a delivery that rolls back
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /** Adds units sold at {@code at} to the product's category and to {@link #ALL}. */
+    public void record(String category, long productId, long quantity, LocalDateTime at) {
+        long time = at.atZone(clock.getZone()).toInstant().toEpochMilli();
+        long now = clock.millis();
+        board(category == null || category.isBlank() ? "uncategorized" : category)
+                .add(productId, quantity, time, now);
+        board(ALL).add(productId, quantity, time, now);
+        units.add(quantity);
+    }
+
+    /** The latest published ranking; never blocks. */
+    public List<Entry> top(String category, Window window, int limit) {
+        Board board = boards.get(category);
+        if (board == null) {
+            return List.of();
+        }
+        List<Entry> ranking = board.published.get(window);
+        return ranking.subList(0, Math.min(Math.max(limit, 0), ranking.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${leaderboard.refresh-interval:1000}",
+            initialDelayString = "${leaderboard.refresh-interval:1000}")
+    public void refresh() {
+        long now = clock.millis();
+        for (Board board : boards.values()) {
+            board.publish(now);
+        }
+        refreshes.increment();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("categories", boards.size());
+        stats.put("units", units.sum());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("capacity", capacity);
+        return stats;
+    }
+
+    private Board board(String category) {
+        return boards.computeIfAbsent(category, c -> new Board());
+    }
+
+    private final class Board {
+
+        // Guarded by this
+        private final Sketch[][] rings = new Sketch[Window.values().length][];
+        private final long[][] epochs = new long[Window.values().length][];
+
+        // Replaced wholesale by publish(), so readers need no lock
+        private volatile Map<Window, List<Entry>> published;
+
+        Board() {
+            Map<Window, List<Entry>> empty = new HashMap<>();
+            for (Window w : Window.values()) {
+                rings[w.ordinal()] = new Sketch[w.buckets];
+                epochs[w.ordinal()] = new long[w.buckets];
+                for (int i = 0; i < w.buckets; i++) {
+                    rings[w.ordinal()][i] = new Sketch(capacity);
+                    epochs[w.ordinal()][i] = -1;
+                }
+                empty.put(w, List.of());
+            }
+            published = empty;
+        }
+
+        synchronized void add(long productId, long quantity, long time, long now) {
+            for (Window w : Window.values()) {
+                long epoch = time / w.bucketMillis;
+                if (epoch <= now / w.bucketMillis - w.buckets) {
+                    continue; // already out of this window
+                }
+                int slot = (int) (epoch % w.buckets);
+                long[] slotEpochs = epochs[w.ordinal()];
+                if (slotEpochs[slot] != epoch) {
+                    if (slotEpochs[slot] > epoch) {
+                        continue; // the slot has moved on; this bucket has expired
+                    }
+                    rings[w.ordinal()][slot].clear();
+                    slotEpochs[slot] = epoch;
+                }
+                rings[w.ordinal()][slot].add(productId, quantity);
+            }
+        }
+
+        void publish(long now) {
+            Map<Window, Map<Long, Long>> totals = new HashMap<>();
+            synchronized (this) {
+                for (Window w : Window.values()) {
+                    long current = now / w.bucketMillis;
+                    Map<Long, Long> sums = new HashMap<>();
+                    for (int slot = 0; slot < w.buckets; slot++) {
+                        long epoch = epochs[w.ordinal()][slot];
+                        if (epoch > current - w.buckets && epoch <= current) {
+                            rings[w.ordinal()][slot].forEach((id, count) -> sums.merge(id, count, Long::sum));
+                        }
+                    }
+                    totals.put(w, sums);
+                }
+            }
+            // Ranked outside the lock so writers wait only for the copy
+            Map<Window, List<Entry>> next = new HashMap<>();
+            for (Map.Entry<Window, Map<Long, Long>> window : totals.entrySet()) {
+                List<Entry> ranking = new ArrayList<>(window.getValue().size());
+                window.getValue().forEach((id, count) -> ranking.add(new Entry(id, count)));
+                ranking.sort((a, b) -> a.units() != b.units() ? Long.compare(b.units(), a.units())
+                        : Long.compare(a.productId(), b.productId()));
+                next.put(window.getKey(),
+                        Collections.unmodifiableList(new ArrayList<>(ranking.subList(0, Math.min(size, ranking.size())))));
+            }
+            published = next;
+        }
+    }
+
+    /**
+     * Space-Saving heavy-hitter sketch: at most {@code capacity} counters. A
+     * new product takes over the smallest counter and inherits its count, so
+     * counts are upper bounds and any product with more than total/capacity
+     * units is guaranteed to be present.
+     */
+    static final class Sketch {
+
+        interface Counter {
+            void accept(long productId, long count);
+        }
+
+        private final int capacity;
+        private final LongObjectHashMap<long[]> counters = new LongObjectHashMap<>();
+
+        Sketch(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void add(long productId, long quantity) {
+            long[] counter = counters.get(productId);
+            if (counter != null) {
+                counter[0] += quantity;
+                return;
+            }
+            if (counters.size() < capacity) {
+                counters.put(productId, new long[] { quantity });
+                return;
+            }
+            long[] min = { Long.MAX_VALUE, 0 };
+            counters.forEach((id, c) -> {
+                if (c[0] < min[0]) {
+                    min[0] = c[0];
+                    min[1] = id;
+                }
+            });
+            counters.remove(min[1]);
+            counters.put(productId, new long[] { min[0] + quantity });
+        }
+
+        void forEach(Counter action) {
+            counters.forEach((id, c) -> action.accept(id, c[0]));
+        }
+
+        void clear() {
+            counters.clear();
+        }
+    }
+}
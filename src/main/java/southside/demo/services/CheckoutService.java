@@ -0,0 +1,286 @@
+package southside.demo.services;
+
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.CheckoutRequest;
+import southside.demo.models.Order;
+import southside.demo.models.OrderItem;
+import southside.demo.models.OutboxEvent;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.CheckoutRequestRepository;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns a cart into an order.
+ *
+ * The checkout transaction only does what has to be atomic with the order:
+ * the order and its items, the stock, the cart and an {@code order.placed}
+ * outbox event. The rest follows from the event, through
+ * {@link OutboxDispatcher}.
+ *
+ * A checkout sent with an idempotency key runs at most once per user and key.
+ * Duplicates arriving while it runs wait for it and get the same order;
+ * duplicates arriving afterwards get it from a bounded in-memory cache, or
+ * from {@code checkout_requests} once the cache has let it go. The key row is
+ * written in the checkout transaction, so a failed checkout leaves the key
+ * free to retry.
+ */
+@Service
+public class CheckoutService {
+
+    private record Completed(Order order, long expiresAtNanos) {
+    }
+
+    private final OrderRepository orderRepo;
+    private final CartRepository cartRepo;
+    private final CheckoutRequestRepository requestRepo;
+    private final OutboxEventRepository outboxRepo;
+    private final InventoryService inventory;
+    private final CartStore cartStore;
+    private final TransactionTemplate tx;
+    private final long cacheTtlNanos;
+    private final Duration retention;
+
+    private final Map<String, CompletableFuture<Order>> inFlight = new ConcurrentHashMap<>();
+    // Access-ordered, so the least recently replayed order goes first; guarded by itself
+    private final LinkedHashMap<String, Completed> completed;
+
+    private final LongAdder placed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder replayedFromCache = new LongAdder();
+    private final LongAdder replayedFromTable = new LongAdder();
+
+    public CheckoutService(OrderRepository orderRepo, CartRepository cartRepo,
+            CheckoutRequestRepository requestRepo, OutboxEventRepository outboxRepo,
+            InventoryService inventory, CartStore cartStore,
+            PlatformTransactionManager txManager,
+            @Value("${checkout.idempotency.cache-ttl:10m}") Duration cacheTtl,
+            @Value("${checkout.idempotency.cache-max-entries:10000}") int cacheMaxEntries,
+            @Value("${checkout.idempotency.retention:24h}") Duration retention) {
+        this.orderRepo = orderRepo;
+        this.cartRepo = cartRepo;
+        this.requestRepo = requestRepo;
+        this.outboxRepo = outboxRepo;
+        this.inventory = inventory;
+        this.cartStore = cartStore;
+        this.tx = new TransactionTemplate(txManager);
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.retention = retention;
+        this.completed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
+    }
+
+    /**
+     * Places an order from the user's cart.
+     *
+     * @param idempotencyKey optional; repeats with the same key return the first order
+     */
+    public Order checkout(Long userId, String idempotencyKey, Order orderData) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return tx.execute(status -> placeOrder(userId, orderData));
+        }
+        if (idempotencyKey.length() > CheckoutRequest.MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency key is longer than "
+                    + CheckoutRequest.MAX_KEY_LENGTH + " characters");
+        }
+
+        String key = userId + ":" + idempotencyKey;
+        Order done = cached(key);
+        if (done != null) {
+            replayedFromCache.increment();
+            return done;
+        }
+
+        CompletableFuture<Order> mine = new CompletableFuture<>();
+        CompletableFuture<Order> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        try {
+            // The previous holder may have finished between the lookup and the claim
+            Order order = cached(key);
+            if (order == null) {
+                order = placeOnce(userId, idempotencyKey, orderData);
+                remember(key, order);
+            }
+            mine.complete(order);
+            return order;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${checkout.idempotency.purge-interval:3600000}",
+            initialDelayString = "${checkout.idempotency.purge-interval:3600000}")
+    public int purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        return tx.execute(status -> requestRepo.deleteCreatedBefore(cutoff));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("placed", placed.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("replayedFromCache", replayedFromCache.sum());
+        stats.put("replayedFromTable", replayedFromTable.sum());
+        stats.put("inFlight", inFlight.size());
+        synchronized (completed) {
+            stats.put("cached", completed.size());
+        }
+        return stats;
+    }
+
+    private Order placeOnce(Long userId, String idempotencyKey, Order orderData) {
+        Optional<Order> stored = storedOrder(userId, idempotencyKey);
+        if (stored.isPresent()) {
+            replayedFromTable.increment();
+            return stored.get();
+        }
+        try {
+            return tx.execute(status -> {
+                // Claimed first: a duplicate on another instance blocks here until this commits
+                CheckoutRequest request = requestRepo.saveAndFlush(new CheckoutRequest(userId, idempotencyKey));
+                Order order = placeOrder(userId, orderData);
+                request.setOrderId(order.getId());
+                return order;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Lost the race for the key; the winner has committed by now
+            Order order = storedOrder(userId, idempotencyKey).orElseThrow(() -> e);
+            replayedFromTable.increment();
+            return order;
+        }
+    }
+
+    private Optional<Order> storedOrder(Long userId, String idempotencyKey) {
+        return requestRepo.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(request -> orderRepo.findWithItemsById(request.getOrderId())
+                        .orElseThrow(() -> new RuntimeException("Order not found")));
+    }
+
+    private Order placeOrder(Long userId, Order orderData) {
+        // A cart kept in memory is written out first and can't change until this commits
+        cartStore.flush(userId);
+
+        // Locked so a tab adding items can't slip lines in between the order and the clear
+        Cart cart = cartRepo.findForUpdateByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Cart not found"));
+
+        if (cart.getItems() == null || cart.getItems().isEmpty()) {
+            throw new RuntimeException("Cart is empty");
+        }
+
+        // Create new order
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setStatus("pending");
+        order.setTotal(cart.getTotalPrice());
+
+        // Map frontend fields from orderData
+        if (orderData.getFullName() != null) {
+            order.setFullName(orderData.getFullName());
+        }
+        if (orderData.getAddress() != null) {
+            order.setAddress(orderData.getAddress());
+        }
+        if (orderData.getCity() != null) {
+            order.setCity(orderData.getCity());
+        }
+        if (orderData.getPostal() != null) {
+            order.setPostal(orderData.getPostal());
+        }
+        if (orderData.getPaymentMethod() != null) {
+            order.setPaymentMethod(orderData.getPaymentMethod());
+        } else {
+            order.setPaymentMethod("cod"); // Default to Cash on Delivery
+        }
+        if (orderData.getCard() != null) {
+            order.setCard(orderData.getCard());
+        }
+
+        // The product list is written by OrderSummaryWriter once the outbox event is dispatched
+        order.setOrderSummary(OrderSummaryWriter.placeholder(cart.getItems().size()));
+
+        // Transfer cart items to order items; they are inserted by cascade
+        // in JDBC batches when the transaction flushes
+        for (CartItem cartItem : cart.getItems()) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(order);
+            orderItem.setProduct(cartItem.getProduct());
+            orderItem.setQuantity(cartItem.getQuantity());
+            orderItem.setPrice(cartItem.getPrice());
+            order.getItems().add(orderItem);
+        }
+
+        // Save order; everything that can wait is queued in the same transaction
+        Order savedOrder = orderRepo.save(order);
+        outboxRepo.save(new OutboxEvent(OutboxEvent.ORDER_PLACED, savedOrder.getId()));
+
+        // Take stock for every line; a shortfall rolls the whole checkout back.
+        // Done last so the stock rows stay locked for as little of the transaction as possible.
+        inventory.reserve(cart.getItems());
+
+        // Clear the cart (orphan removal deletes the items in one batch)
+        cart.clearItems();
+
+        placed.increment();
+        return savedOrder;
+    }
+
+    private Order cached(String key) {
+        synchronized (completed) {
+            Completed entry = completed.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAtNanos() > 0) {
+                completed.remove(key);
+                return null;
+            }
+            return entry.order();
+        }
+    }
+
+    private void remember(String key, Order order) {
+        synchronized (completed) {
+            completed.put(key, new Completed(order, System.nanoTime() + cacheTtlNanos));
+        }
+    }
+
+    private static Order await(CompletableFuture<Order> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // Duplicates see the same failure as the request they joined
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package southside.demo.services;
+
+import southside.demo.models.Product;
+import southside.demo.models.StockReservation;
+import southside.demo.repository.ProductRepository;
+import southside.demo.repository.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live stock for a handful of hot products, kept in memory during drops.
+ *
+ * Checkouts for tracked products take stock with a compare-and-set on an
+ * in-memory counter instead of locking the product row, and record what they
+ * took as a {@link StockReservation} row in their own transaction. A scheduled
+ * flush subtracts the logged reservations from {@code products.quantity} in
+ * batches and deletes them in the same transaction. On startup each counter is
+ * rebuilt as the stored quantity minus the reservations not yet flushed, so a
+ * crash loses nothing.
+ *
+ * Disabled unless {@code inventory.hot.enabled=true}. The counters are per
+ * process, so this is only safe while a single instance takes checkouts.
+ */
+@Component
+public class HotStockCounters implements ProductChangeListener {
+
+    private final ProductRepository productRepo;
+    private final StockReservationRepository reservationRepo;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final List<Long> configuredIds;
+    private final int flushBatchSize;
+
+    private final Map<Long, AtomicInteger> counters = new ConcurrentHashMap<>();
+
+    public HotStockCounters(ProductRepository productRepo, StockReservationRepository reservationRepo,
+            PlatformTransactionManager txManager,
+            @Value("${inventory.hot.enabled:false}") boolean enabled,
+            @Value("${inventory.hot.product-ids:}") List<Long> configuredIds,
+            @Value("${inventory.hot.flush-batch-size:1000}") int flushBatchSize) {
+        this.productRepo = productRepo;
+        this.reservationRepo = reservationRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.enabled = enabled;
+        this.configuredIds = configuredIds;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        configuredIds.forEach(this::track);
+    }
+
+    /**
+     * Starts serving a product's stock from memory. Call this before checkout
+     * traffic for the product starts; a checkout already on its way to the
+     * database path would not be seen by the counter.
+     */
+    public void track(Long productId) {
+        if (!enabled) {
+            return;
+        }
+        productRepo.findById(productId)
+                .filter(p -> p.getQuantity() != null)
+                .ifPresent(p -> counters.put(productId, new AtomicInteger(available(p))));
+    }
+
+    public boolean isTracked(Long productId) {
+        return counters.containsKey(productId);
+    }
+
+    public Integer available(Long productId) {
+        AtomicInteger counter = counters.get(productId);
+        return counter == null ? null : counter.get();
+    }
+
+    // ======================
+    // RESERVATION
+    // ======================
+
+    /**
+     * Moves the tracked products out of {@code quantities} and reserves them
+     * from memory. The reservation is logged in the caller's transaction and
+     * handed back to the counters if that transaction does not commit.
+     *
+     * @return id of a product that was short (nothing is reserved then), or
+     *         null if every tracked line was reserved
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Long reserve(Map<Long, Integer> quantities) {
+        Map<Long, Integer> taken = new TreeMap<>();
+        for (Iterator<Map.Entry<Long, Integer>> it = quantities.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Long, Integer> line = it.next();
+            AtomicInteger counter = counters.get(line.getKey());
+            if (counter == null) {
+                continue;
+            }
+            it.remove();
+            if (!tryTake(counter, line.getValue())) {
+                giveBack(taken);
+                return line.getKey();
+            }
+            taken.put(line.getKey(), line.getValue());
+        }
+        if (taken.isEmpty()) {
+            return null;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    giveBack(taken);
+                }
+            }
+        });
+        List<StockReservation> log = new ArrayList<>(taken.size());
+        taken.forEach((id, quantity) -> log.add(new StockReservation(id, quantity)));
+        reservationRepo.saveAll(log);
+        return null;
+    }
+
+    private static boolean tryTake(AtomicInteger counter, int quantity) {
+        while (true) {
+            int current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /** Hands units put back on the products' rows (e.g. by a cancellation) to the counters. */
+    public void restocked(Map<Long, Integer> quantities) {
+        giveBack(quantities);
+    }
+
+    private void giveBack(Map<Long, Integer> taken) {
+        taken.forEach((id, quantity) -> {
+            AtomicInteger counter = counters.get(id);
+            if (counter != null) {
+                counter.addAndGet(quantity);
+            }
+        });
+    }
+
+    // ======================
+    // WRITE-BACK
+    // ======================
+
+    /**
+     * Applies logged reservations to {@code products.quantity}, one batch per
+     * transaction, until the log is empty.
+     *
+     * @return number of reservations applied
+     */
+    @Scheduled(fixedDelayString = "${inventory.hot.flush-interval:1000}")
+    public int flush() {
+        if (!enabled) {
+            return 0;
+        }
+        int total = 0;
+        int flushed;
+        do {
+            flushed = tx.execute(status -> {
+                List<StockReservation> batch = reservationRepo.findAllByOrderByIdAsc(Limit.of(flushBatchSize));
+                Map<Long, Long> byProduct = new TreeMap<>();
+                List<Long> ids = new ArrayList<>(batch.size());
+                for (StockReservation r : batch) {
+                    byProduct.merge(r.getProductId(), (long) r.getQuantity(), Long::sum);
+                    ids.add(r.getId());
+                }
+                byProduct.forEach(productRepo::subtractStock);
+                reservationRepo.deleteAllByIdInBatch(ids);
+                return batch.size();
+            });
+            total += flushed;
+        } while (flushed == flushBatchSize);
+        return total;
+    }
+
+    // ======================
+    // PRODUCT CHANGES
+    // ======================
+
+    @Override
+    public void productSaved(Product product) {
+        // New products aren't tracked yet; edits come with their previous quantity
+    }
+
+    @Override
+    public void productSaved(Product product, Integer previousQuantity) {
+        AtomicInteger counter = counters.get(product.getId());
+        if (counter == null) {
+            return;
+        }
+        if (product.getQuantity() == null || previousQuantity == null) {
+            counters.remove(product.getId());
+            return;
+        }
+        // Applied as a delta: checkouts may have taken units whose log rows aren't committed yet,
+        // which a recount from the table would hand out again. previousQuantity is read before the
+        // save, so a flush landing in between can only leave the counter low, never oversell
+        counter.addAndGet(product.getQuantity() - previousQuantity);
+    }
+
+    @Override
+    public void productDeleted(Long id) {
+        counters.remove(id);
+    }
+
+    private int available(Product product) {
+        return product.getQuantity() - (int) reservationRepo.pendingQuantity(product.getId());
+    }
+}
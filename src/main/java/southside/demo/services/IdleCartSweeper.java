@@ -0,0 +1,150 @@
+package southside.demo.services;
+
+import southside.demo.models.IdleCart;
+import southside.demo.repository.CartRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes carts nobody has touched for {@code cart.sweeper.ttl}.
+ *
+ * Each batch locks up to {@code batch-size} idle carts, deletes their items
+ * and then the carts, and commits, so no transaction holds many locks for
+ * long. The deleted carts are then evicted from the {@link CartStore}. The
+ * sweeper pauses between batches and stops after {@code max-batches} per run;
+ * whatever is left is picked up next run.
+ *
+ * Runs on a thread of its own: a run can take minutes, and on the shared
+ * scheduler it would hold up the outbox, the cart write-back and every other
+ * scheduled job meanwhile.
+ */
+@Component
+public class IdleCartSweeper {
+
+    private final CartRepository cartRepo;
+    private final CartStore cartStore;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int batchSize;
+    private final int maxBatches;
+    private final long pauseMillis;
+    private final long intervalMillis;
+    private final ThreadPoolTaskScheduler runner = new ThreadPoolTaskScheduler();
+
+    private final LongAdder cartsDeleted = new LongAdder();
+    private final LongAdder itemsDeleted = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private volatile long lastRunMillis;
+    private volatile LocalDateTime lastRunAt;
+
+    public IdleCartSweeper(CartRepository cartRepo, CartStore cartStore, PlatformTransactionManager txManager,
+            @Value("${cart.sweeper.enabled:true}") boolean enabled,
+            @Value("${cart.sweeper.ttl:30d}") Duration ttl,
+            @Value("${cart.sweeper.batch-size:500}") int batchSize,
+            @Value("${cart.sweeper.max-batches:200}") int maxBatches,
+            @Value("${cart.sweeper.pause:200}") long pauseMillis,
+            @Value("${cart.sweeper.interval:600000}") long intervalMillis) {
+        this.cartRepo = cartRepo;
+        this.cartStore = cartStore;
+        this.tx = new TransactionTemplate(txManager);
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pauseMillis = pauseMillis;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            // Failed runs are logged and the next one still happens
+            runner.setThreadNamePrefix("cart-sweeper-");
+            runner.setDaemon(true);
+            runner.initialize();
+            runner.scheduleWithFixedDelay(this::sweep, Instant.now().plusMillis(intervalMillis),
+                    Duration.ofMillis(intervalMillis));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (enabled) {
+            runner.shutdown();
+        }
+    }
+
+    /** @return number of carts deleted */
+    public int sweep() {
+        long start = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        int deleted = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                List<IdleCart> swept = tx.execute(status -> {
+                    List<IdleCart> idle = cartRepo.lockIdleCarts(cutoff, Limit.of(batchSize));
+                    if (idle.isEmpty()) {
+                        return idle;
+                    }
+                    List<Long> ids = new ArrayList<>(idle.size());
+                    for (IdleCart cart : idle) {
+                        ids.add(cart.id());
+                    }
+                    itemsDeleted.add(cartRepo.deleteItemsByCartIdIn(ids));
+                    cartRepo.deleteByIdIn(ids);
+                    return idle;
+                });
+                int carts = swept.size();
+                if (carts > 0) {
+                    List<Long> userIds = new ArrayList<>(carts);
+                    for (IdleCart cart : swept) {
+                        userIds.add(cart.userId());
+                    }
+                    cartStore.evict(userIds);
+                }
+                cartsDeleted.add(carts);
+                deleted += carts;
+                if (carts < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lastRunMillis = (System.nanoTime() - start) / 1_000_000;
+            lastRunAt = LocalDateTime.now();
+            totalMillis.add(lastRunMillis);
+            runs.increment();
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cartsDeleted", cartsDeleted.sum());
+        stats.put("itemsDeleted", itemsDeleted.sum());
+        stats.put("runs", runs.sum());
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("totalRunMillis", totalMillis.sum());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("ttl", ttl.toString());
+        return stats;
+    }
+}
@@ -0,0 +1,12 @@
+package southside.demo.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String productName) {
+        super("Insufficient stock for product: " + productName);
+    }
+}
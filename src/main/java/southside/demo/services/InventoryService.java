@@ -0,0 +1,104 @@
+package southside.demo.services;
+
+import southside.demo.models.CartItem;
+import southside.demo.models.Product;
+import southside.demo.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stock reservation for checkout.
+ *
+ * All lines are decremented by a single conditional UPDATE, so two checkouts
+ * can never both take the last unit and the cart costs one round trip however
+ * many lines it has. The rows are matched by primary key, so concurrent
+ * checkouts lock them in the same (ascending id) order and cannot deadlock.
+ * A shortfall on any line throws, which rolls back the caller's transaction
+ * and with it every line that was decremented. Products tracked by
+ * {@link HotStockCounters} skip the row lock and are taken from memory.
+ */
+@Service
+public class InventoryService {
+
+    private final ProductRepository productRepo;
+    private final HotStockCounters hotStock;
+    private final List<ProductChangeListener> listeners;
+
+    public InventoryService(ProductRepository productRepo, HotStockCounters hotStock,
+            List<ProductChangeListener> listeners) {
+        this.productRepo = productRepo;
+        this.hotStock = hotStock;
+        this.listeners = listeners;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Collection<CartItem> lines) {
+        // Same product on several lines is reserved once
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, Product> products = new HashMap<>();
+        for (CartItem line : lines) {
+            quantities.merge(line.getProduct().getId(), line.getQuantity(), Integer::sum);
+            products.put(line.getProduct().getId(), line.getProduct());
+        }
+
+        // Hot products are taken from memory; whatever is left locks its rows
+        Map<Long, Integer> fromDatabase = new TreeMap<>(quantities);
+        Long shortHotProduct = hotStock.reserve(fromDatabase);
+        if (shortHotProduct != null) {
+            throw new InsufficientStockException(products.get(shortHotProduct).getName());
+        }
+        if (!fromDatabase.isEmpty() && productRepo.reserveStock(fromDatabase) < fromDatabase.size()) {
+            throw new InsufficientStockException(shortProductName(fromDatabase, products));
+        }
+
+        // In-memory catalog views only learn about the new stock once it is committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                quantities.forEach((id, quantity) -> listeners.forEach(l -> l.stockChanged(id, -quantity)));
+            }
+        });
+    }
+
+    /**
+     * Puts units back on the shelf, e.g. for a cancelled order, in the
+     * caller's transaction. Negative quantities take units again.
+     *
+     * @param quantities product id -> units
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void restock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        productRepo.restoreStock(sorted);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // The rows moved first, so a counter is only ever behind them, never ahead
+                hotStock.restocked(sorted);
+                sorted.forEach((id, quantity) -> listeners.forEach(l -> l.stockChanged(id, quantity)));
+            }
+        });
+    }
+
+    // Failure path only: find a line the UPDATE skipped, for the error message
+    private String shortProductName(Map<Long, Integer> quantities, Map<Long, Product> products) {
+        for (Product current : productRepo.findAllById(quantities.keySet())) {
+            Integer stock = current.getQuantity();
+            if (stock != null && stock < quantities.get(current.getId())) {
+                return current.getName();
+            }
+        }
+        return products.values().iterator().next().getName();
+    }
+}
@@ -0,0 +1,59 @@
+package southside.demo.services;
+
+import southside.demo.models.Cart;
+import southside.demo.repository.CartRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+
+    private final CartRepository cartRepo;
+
+    public JpaCartStore(CartRepository cartRepo) {
+        this.cartRepo = cartRepo;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Cart> find(Long userId) {
+        return cartRepo.findByUserId(userId);
+    }
+
+    @Override
+    @Transactional
+    public Optional<Cart> update(Long userId, Consumer<Cart> mutation) {
+        // The row lock serializes mutations of one cart; changes are flushed on commit
+        Optional<Cart> cart = cartRepo.findForUpdateByUserId(userId);
+        cart.ifPresent(mutation);
+        return cart;
+    }
+
+    @Override
+    @Transactional
+    public Cart updateOrCreate(Long userId, Consumer<Cart> mutation) {
+        Cart cart = cartRepo.findForUpdateByUserId(userId)
+                .orElseGet(() -> {
+                    Cart newCart = new Cart();
+                    newCart.setUserId(userId);
+                    return cartRepo.save(newCart);
+                });
+        mutation.accept(cart);
+        return cart;
+    }
+
+    @Override
+    public void flush(Long userId) {
+        // Always in the tables already; checkout's own row lock does the rest
+    }
+
+    @Override
+    public void evict(Collection<Long> userIds) {
+        // Nothing held outside the tables
+    }
+}
@@ -0,0 +1,18 @@
+package southside.demo.services;
+
+import southside.demo.models.Order;
+
+/**
+ * Work that follows a checkout but doesn't have to hold it up. Every listener
+ * bean is called by {@link OutboxDispatcher} inside its transaction, with the
+ * order's items and products loaded.
+ *
+ * A delivery where any listener throws rolls back, so effects should be
+ * written in the transaction or deferred to {@code afterCommit}. Delivery is
+ * still at least once: after a crash the same order can arrive again, so
+ * listeners must tolerate repeats.
+ */
+public interface OrderEventListener {
+
+    void orderPlaced(Order order);
+}
@@ -0,0 +1,199 @@
+package southside.demo.services;
+
+import southside.demo.repository.OrderFilter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.SelectionQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams orders and their items straight from a forward-only scroll.
+ *
+ * Rows are flat scalar tuples (one per order item), so no entities are
+ * materialized and memory stays constant however many orders match. Output is
+ * flushed every {@code FLUSH_EVERY_ORDERS} orders so the client sees progress.
+ */
+@Service
+public class OrderExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final int FLUSH_EVERY_ORDERS = 500;
+
+    private static final String CSV_HEADER = "order_id,created_at,user_id,status,payment_method,order_total,"
+            + "item_id,product_id,product_name,quantity,price\n";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate readOnlyTx;
+    private final int fetchSize;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public OrderExportService(PlatformTransactionManager txManager,
+            @Value("${orders.export.fetch-size:1000}") int fetchSize) {
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    public void export(OrderFilter filter, Format format, OutputStream out) {
+        readOnlyTx.executeWithoutResult(status -> {
+            try (ScrollableResults<Object[]> rows = scroll(filter)) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+                if (format == Format.CSV) {
+                    writeCsv(rows, writer);
+                } else {
+                    writeNdjson(rows, writer);
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private ScrollableResults<Object[]> scroll(OrderFilter filter) {
+        StringBuilder hql = new StringBuilder(
+                "SELECT o.id, o.createdAt, o.userId, o.status, o.paymentMethod, o.total, "
+                        + "i.id, p.id, p.name, i.quantity, i.price "
+                        + "FROM Order o LEFT JOIN o.items i LEFT JOIN i.product p WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        if (filter.userId() != null) {
+            hql.append(" AND o.userId = :userId");
+            params.put("userId", filter.userId());
+        }
+        if (filter.status() != null) {
+            hql.append(" AND o.status = :status");
+            params.put("status", filter.status());
+        }
+        if (filter.from() != null) {
+            hql.append(" AND o.createdAt >= :from");
+            params.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            hql.append(" AND o.createdAt < :to");
+            params.put("to", filter.to());
+        }
+        // Items of one order are adjacent, which lets the writers group them without buffering
+        hql.append(" ORDER BY o.createdAt, o.id, i.id");
+
+        SelectionQuery<Object[]> query = em.unwrap(Session.class)
+                .createSelectionQuery(hql.toString(), Object[].class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+        params.forEach(query::setParameter);
+        return query.scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    // ======================
+    // NDJSON: one order per line
+    // ======================
+
+    private void writeNdjson(ScrollableResults<Object[]> rows, Writer writer) throws IOException {
+        JsonGenerator json = jsonFactory.createGenerator(writer);
+        json.setRootValueSeparator(new SerializedString("\n"));
+
+        Long currentOrder = null;
+        int orders = 0;
+        while (rows.next()) {
+            Object[] row = rows.get();
+            Long orderId = (Long) row[0];
+            if (!orderId.equals(currentOrder)) {
+                if (currentOrder != null) {
+                    json.writeEndArray();
+                    json.writeEndObject();
+                    if (++orders % FLUSH_EVERY_ORDERS == 0) {
+                        json.flush();
+                    }
+                }
+                currentOrder = orderId;
+                json.writeStartObject();
+                json.writeNumberField("id", orderId);
+                json.writeStringField("createdAt", row[1] == null ? null : ((LocalDateTime) row[1]).toString());
+                json.writeNumberField("userId", (Long) row[2]);
+                json.writeStringField("status", (String) row[3]);
+                json.writeStringField("paymentMethod", (String) row[4]);
+                json.writeNumberField("total", (Double) row[5]);
+                json.writeArrayFieldStart("items");
+            }
+            if (row[6] != null) {
+                json.writeStartObject();
+                json.writeNumberField("id", (Long) row[6]);
+                json.writeNumberField("productId", (Long) row[7]);
+                json.writeStringField("productName", (String) row[8]);
+                json.writeNumberField("quantity", (Integer) row[9]);
+                json.writeNumberField("price", (Double) row[10]);
+                json.writeEndObject();
+            }
+        }
+        if (currentOrder != null) {
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+        json.flush();
+    }
+
+    // ======================
+    // CSV: one order item per line
+    // ======================
+
+    private void writeCsv(ScrollableResults<Object[]> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+
+        Long currentOrder = null;
+        int orders = 0;
+        while (rows.next()) {
+            Object[] row = rows.get();
+            if (!row[0].equals(currentOrder)) {
+                if (currentOrder != null && ++orders % FLUSH_EVERY_ORDERS == 0) {
+                    writer.flush();
+                }
+                currentOrder = (Long) row[0];
+            }
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvValue(writer, row[i]);
+            }
+            writer.write('\n');
+        }
+    }
+
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,214 @@
+package southside.demo.services;
+
+import southside.demo.models.OrderStatusChange;
+import southside.demo.models.OrderStatusRow;
+import southside.demo.models.ProductUnits;
+import southside.demo.models.StatusTransitionResult;
+import southside.demo.repository.OrderItemRepository;
+import southside.demo.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Moves orders through pending → processing → shipped → delivered in bulk.
+ * Orders can be cancelled until they have shipped.
+ *
+ * Ids are handled in chunks of {@code orders.bulk-status.chunk-size}, one
+ * transaction each. A chunk locks the status column of its rows, decides per
+ * order, then moves every allowed order with a single UPDATE. Order items and
+ * products are never loaded. If a chunk fails, the chunks before it stay
+ * committed and every id from the failed one on is reported as
+ * {@code not_applied}.
+ *
+ * An order that is cancelled puts its units back in stock in the same
+ * transaction; one taken out of {@code cancelled} by the admin override takes
+ * them again.
+ */
+@Service
+public class OrderStatusService {
+
+    public static final String UPDATED = "updated";
+    public static final String UNCHANGED = "unchanged";
+    public static final String INVALID_TRANSITION = "invalid_transition";
+    public static final String NOT_FOUND = "not_found";
+    public static final String NOT_APPLIED = "not_applied";
+
+    private static final String CANCELLED = "cancelled";
+
+    // Target status -> the statuses it may be reached from
+    private static final Map<String, Set<String>> ALLOWED_FROM = Map.of(
+            "processing", Set.of("pending"),
+            "shipped", Set.of("processing"),
+            "delivered", Set.of("shipped"),
+            CANCELLED, Set.of("pending", "processing"));
+
+    private final OrderRepository orderRepo;
+    private final OrderStatusStream statusStream;
+    private final SalesRollups rollups;
+    private final InventoryService inventory;
+    private final OrderItemRepository orderItemRepo;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+    private final int maxIds;
+
+    public OrderStatusService(OrderRepository orderRepo, OrderStatusStream statusStream, SalesRollups rollups,
+            InventoryService inventory, OrderItemRepository orderItemRepo, PlatformTransactionManager txManager,
+            @Value("${orders.bulk-status.chunk-size:500}") int chunkSize,
+            @Value("${orders.bulk-status.max-ids:10000}") int maxIds) {
+        this.orderRepo = orderRepo;
+        this.statusStream = statusStream;
+        this.rollups = rollups;
+        this.inventory = inventory;
+        this.orderItemRepo = orderItemRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.chunkSize = chunkSize;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Sets one order's status without checking the transition rules.
+     *
+     * @return false if the order already had that status
+     */
+    public boolean setStatus(Long id, String status) {
+        if (status == null || status.isBlank()) {
+            throw new RuntimeException("Status is required");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        OrderStatusRow moved = tx.execute(s -> {
+            OrderStatusRow row = orderRepo.lockStatusRows(List.of(id)).stream().findFirst()
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
+            if (status.equals(row.status())) {
+                return null;
+            }
+            orderRepo.updateStatus(List.of(id), status, now);
+            rollups.statusChanged(List.of(row), status);
+            restock(List.of(row), status);
+            return row;
+        });
+        if (moved == null) {
+            return false;
+        }
+        statusStream.publish(moved.userId(), new OrderStatusChange(id, status, now));
+        return true;
+    }
+
+    public static boolean isAllowed(String from, String to) {
+        Set<String> sources = ALLOWED_FROM.get(to);
+        return sources != null && sources.contains(from);
+    }
+
+    /**
+     * Moves the orders to {@code status} where the transition is allowed.
+     *
+     * @return one result per requested id, in request order; ids of a chunk
+     *         that failed, and of every chunk after it, are {@code not_applied}
+     */
+    public List<StatusTransitionResult> transition(List<Long> ids, String status) {
+        if (!ALLOWED_FROM.containsKey(status)) {
+            throw new RuntimeException("Invalid target status: " + status);
+        }
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        if (ids.size() > maxIds) {
+            throw new RuntimeException("At most " + maxIds + " orders can be updated at once");
+        }
+
+        // Sorted so concurrent bulk updates lock rows in the same order
+        List<Long> sorted = new ArrayList<>(new TreeSet<>(ids));
+        Map<Long, StatusTransitionResult> outcomes = new HashMap<>();
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            List<Long> chunk = sorted.subList(from, Math.min(from + chunkSize, sorted.size()));
+            LocalDateTime now = LocalDateTime.now();
+            Map<Long, StatusTransitionResult> chunkOutcomes = new HashMap<>();
+            List<OrderStatusRow> moved;
+            try {
+                moved = tx.execute(s -> transitionChunk(chunk, status, now, chunkOutcomes));
+            } catch (RuntimeException e) {
+                // Earlier chunks are committed; report them rather than failing the whole request
+                break;
+            }
+            outcomes.putAll(chunkOutcomes);
+            // Committed: the tracking page can see it now
+            for (OrderStatusRow row : moved) {
+                statusStream.publish(row.userId(), new OrderStatusChange(row.id(), status, now));
+            }
+        }
+
+        List<StatusTransitionResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            StatusTransitionResult outcome = outcomes.get(id);
+            results.add(outcome != null ? outcome : new StatusTransitionResult(id, NOT_APPLIED, null));
+        }
+        return results;
+    }
+
+    private List<OrderStatusRow> transitionChunk(Collection<Long> chunk, String status, LocalDateTime now,
+            Map<Long, StatusTransitionResult> outcomes) {
+        List<OrderStatusRow> rows = orderRepo.lockStatusRows(chunk);
+        List<OrderStatusRow> moved = new ArrayList<>();
+        List<Long> movedIds = new ArrayList<>();
+        for (OrderStatusRow row : rows) {
+            String outcome;
+            if (status.equals(row.status())) {
+                outcome = UNCHANGED;
+            } else if (isAllowed(row.status(), status)) {
+                outcome = UPDATED;
+                moved.add(row);
+                movedIds.add(row.id());
+            } else {
+                outcome = INVALID_TRANSITION;
+            }
+            outcomes.put(row.id(), new StatusTransitionResult(row.id(), outcome, row.status()));
+        }
+        for (Long id : chunk) {
+            outcomes.putIfAbsent(id, new StatusTransitionResult(id, NOT_FOUND, null));
+        }
+        if (!movedIds.isEmpty()) {
+            orderRepo.updateStatus(movedIds, status, now);
+            rollups.statusChanged(moved, status);
+            restock(moved, status);
+        }
+        return moved;
+    }
+
+    // Orders entering cancelled hand their units back; leaving it takes them again
+    private void restock(List<OrderStatusRow> moved, String to) {
+        List<Long> cancelled = new ArrayList<>();
+        List<Long> restored = new ArrayList<>();
+        for (OrderStatusRow row : moved) {
+            boolean cancelling = CANCELLED.equals(to);
+            if (cancelling != CANCELLED.equals(row.status())) {
+                (cancelling ? cancelled : restored).add(row.id());
+            }
+        }
+        Map<Long, Integer> units = new TreeMap<>();
+        addUnits(units, cancelled, 1);
+        addUnits(units, restored, -1);
+        inventory.restock(units);
+    }
+
+    private void addUnits(Map<Long, Integer> units, List<Long> orderIds, int sign) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        for (ProductUnits line : orderItemRepo.sumByProduct(orderIds)) {
+            // Lines of deleted products have nothing to go back to
+            if (line.productId() != null) {
+                units.merge(line.productId(), sign * line.units().intValue(), Integer::sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package southside.demo.services;
+
+import southside.demo.models.Order;
+import southside.demo.models.OrderStatusChange;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes order status changes to the users who own the orders, over
+ * Server-Sent Events.
+ *
+ * Connections are async servlet requests, so an idle subscriber costs a
+ * socket and a few objects but no thread. Publishing only queues the change
+ * in each subscriber's buffer; a small sender pool writes buffers out, one
+ * drain per subscriber at a time, so a slow client never holds up the
+ * request that changed the order.
+ *
+ * Buffers keep the latest status per order and hold at most
+ * {@code orders.stream.buffer-size} orders. A subscriber that falls further
+ * behind loses its buffer and is sent a {@code resync} event instead, telling
+ * the page to reload its orders once.
+ */
+@Component
+public class OrderStatusStream {
+
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final int maxPerUser;
+    private final ExecutorService sender;
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    public OrderStatusStream(@Value("${orders.stream.timeout:30m}") Duration timeout,
+            @Value("${orders.stream.buffer-size:64}") int bufferSize,
+            @Value("${orders.stream.max-per-user:5}") int maxPerUser,
+            @Value("${orders.stream.sender-threads:4}") int senderThreads) {
+        this.timeoutMillis = timeout.toMillis();
+        this.bufferSize = bufferSize;
+        this.maxPerUser = maxPerUser;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "order-stream-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Opens a stream of status changes for the user's orders. */
+    public SseEmitter subscribe(Long userId) {
+        return register(userId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter register(Long userId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        Subscriber evicted = null;
+        List<Subscriber> mine = subscribers.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>());
+        synchronized (mine) {
+            mine.add(subscriber);
+            if (mine.size() > maxPerUser) {
+                // Another tab over the limit: the oldest connection makes room
+                evicted = mine.remove(0);
+            }
+        }
+        connections.incrementAndGet();
+        if (evicted != null) {
+            connections.decrementAndGet();
+            evicted.emitter.complete();
+        }
+        return emitter;
+    }
+
+    /** Queues the order's current status for every stream its owner has open. */
+    public void publish(Order order) {
+        publish(order.getUserId(), OrderStatusChange.of(order));
+    }
+
+    public void publish(Long userId, OrderStatusChange change) {
+        published.increment();
+        List<Subscriber> mine = subscribers.get(userId);
+        if (mine == null) {
+            return;
+        }
+        for (Subscriber subscriber : mine) {
+            subscriber.offer(change);
+        }
+    }
+
+    // Keeps idle connections open through proxies and finds the ones that are gone
+    @Scheduled(fixedDelayString = "${orders.stream.heartbeat-interval:30000}",
+            initialDelayString = "${orders.stream.heartbeat-interval:30000}")
+    public void heartbeat() {
+        for (List<Subscriber> mine : subscribers.values()) {
+            for (Subscriber subscriber : mine) {
+                subscriber.ping();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("connections", connections.get());
+        stats.put("users", subscribers.size());
+        stats.put("published", published.sum());
+        stats.put("sent", sent.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("overflows", overflows.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+        for (List<Subscriber> mine : subscribers.values()) {
+            for (Subscriber subscriber : mine) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        List<Subscriber> mine = subscribers.get(subscriber.userId);
+        if (mine == null) {
+            return;
+        }
+        synchronized (mine) {
+            if (!mine.remove(subscriber)) {
+                return;
+            }
+            if (mine.isEmpty()) {
+                subscribers.remove(subscriber.userId, mine);
+            }
+        }
+        connections.decrementAndGet();
+    }
+
+    private final class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+
+        // Latest change per order, oldest first; guarded by this
+        private final LinkedHashMap<Long, OrderStatusChange> pending = new LinkedHashMap<>();
+        private boolean resync;
+        private boolean ping;
+        private boolean draining;
+
+        Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(OrderStatusChange change) {
+            synchronized (this) {
+                if (pending.remove(change.orderId()) != null) {
+                    coalesced.increment();
+                } else if (pending.size() >= bufferSize) {
+                    pending.clear();
+                    resync = true;
+                    overflows.increment();
+                    scheduleDrain();
+                    return;
+                }
+                if (!resync) {
+                    pending.put(change.orderId(), change);
+                }
+                scheduleDrain();
+            }
+        }
+
+        synchronized void ping() {
+            ping = true;
+            scheduleDrain();
+        }
+
+        // Caller holds the lock
+        private void scheduleDrain() {
+            if (!draining) {
+                draining = true;
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<OrderStatusChange> batch;
+                boolean sendResync;
+                boolean sendPing;
+                synchronized (this) {
+                    if (pending.isEmpty() && !resync && !ping) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.values());
+                    pending.clear();
+                    sendResync = resync;
+                    sendPing = ping;
+                    resync = false;
+                    ping = false;
+                }
+                try {
+                    if (sendResync) {
+                        emitter.send(SseEmitter.event().name("resync").data(""));
+                    }
+                    for (OrderStatusChange change : batch) {
+                        emitter.send(SseEmitter.event()
+                                .name("status")
+                                .data(change, MediaType.APPLICATION_JSON));
+                        sent.increment();
+                    }
+                    if (sendPing && !sendResync && batch.isEmpty()) {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away; its buffer goes with it
+                    remove(this);
+                    emitter.completeWithError(e);
+                    synchronized (this) {
+                        pending.clear();
+                        draining = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
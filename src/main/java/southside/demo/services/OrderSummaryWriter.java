@@ -0,0 +1,41 @@
+package southside.demo.services;
+
+import southside.demo.models.Order;
+import southside.demo.models.OrderItem;
+import org.springframework.stereotype.Component;
+
+/** Replaces the placeholder summary written at checkout with the product list. */
+@Component
+public class OrderSummaryWriter implements OrderEventListener {
+
+    private static final int MAX_SUMMARY_LENGTH = 255;
+
+    @Override
+    public void orderPlaced(Order order) {
+        order.setOrderSummary(summarize(order));
+    }
+
+    static String summarize(Order order) {
+        StringBuilder summary = new StringBuilder();
+        for (OrderItem item : order.getItems()) {
+            summary.append(item.getProductCard().getName())
+                    .append(" x")
+                    .append(item.getQuantity())
+                    .append(", ");
+        }
+        if (summary.length() > 0) {
+            summary.setLength(summary.length() - 2); // Remove last comma
+        }
+        if (summary.length() > MAX_SUMMARY_LENGTH) {
+            // Large carts don't fit the VARCHAR(255) column
+            summary.setLength(MAX_SUMMARY_LENGTH - 3);
+            summary.append("...");
+        }
+        return summary.toString();
+    }
+
+    /** What an order shows until its summary has been written. */
+    static String placeholder(int lines) {
+        return lines == 1 ? "1 item" : lines + " items";
+    }
+}
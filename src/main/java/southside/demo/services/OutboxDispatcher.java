@@ -0,0 +1,205 @@
+package southside.demo.services;
+
+import southside.demo.models.Order;
+import southside.demo.models.OutboxEvent;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands outbox events to their listeners in batches.
+ *
+ * Each batch locks up to {@code outbox.batch-size} events, loads their orders
+ * in one query, calls every {@link OrderEventListener} and deletes the events,
+ * all in one transaction. Whatever the listeners change commits with the
+ * delete, so a crash leaves the events in place to be delivered again on the
+ * next run.
+ *
+ * If any listener throws, the whole batch rolls back, so none of its events
+ * leave effects behind, and the batch is delivered again one event per
+ * transaction. An event that still fails has its attempt count raised in a
+ * transaction of its own, which a listener that left the delivery
+ * rollback-only can't undo. Once it reaches {@code outbox.max-attempts} it is
+ * no longer picked up and is only counted as dead.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private final OutboxEventRepository outboxRepo;
+    private final OrderRepository orderRepo;
+    private final List<OrderEventListener> listeners;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long lastRunMillis;
+    private volatile LocalDateTime lastRunAt;
+
+    // One run at a time, whether scheduled or called directly
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    public OutboxDispatcher(OutboxEventRepository outboxRepo, OrderRepository orderRepo,
+            List<OrderEventListener> listeners, PlatformTransactionManager txManager,
+            @Value("${outbox.batch-size:100}") int batchSize,
+            @Value("${outbox.max-attempts:10}") int maxAttempts) {
+        this.outboxRepo = outboxRepo;
+        this.orderRepo = orderRepo;
+        this.listeners = listeners;
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.dispatch-interval:200}",
+            initialDelayString = "${outbox.dispatch-interval:200}")
+    public void scheduledDispatch() {
+        dispatch();
+    }
+
+    /** @return number of events delivered */
+    public int dispatch() {
+        dispatchLock.lock();
+        long start = System.nanoTime();
+        int total = 0;
+        try {
+            while (true) {
+                int[] batch;
+                try {
+                    batch = tx.execute(status -> dispatchBatch());
+                    delivered.add(batch[1]);
+                } catch (BatchFailedException e) {
+                    // Nothing from the batch committed; find the failing events one at a time
+                    batch = new int[] { e.eventIds.size(), dispatchEach(e.eventIds) };
+                }
+                total += batch[1];
+                // Stop on a short batch, or when nothing but failures is left at the head
+                if (batch[0] < batchSize || batch[1] == 0) {
+                    break;
+                }
+            }
+        } finally {
+            lastRunMillis = (System.nanoTime() - start) / 1_000_000;
+            lastRunAt = LocalDateTime.now();
+            dispatchLock.unlock();
+        }
+        return total;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("delivered", delivered.sum());
+        stats.put("failures", failures.sum());
+        stats.put("pending", outboxRepo.countByAttemptsLessThan(maxAttempts));
+        stats.put("dead", outboxRepo.countByAttemptsGreaterThanEqual(maxAttempts));
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+
+    // Returns {locked, delivered}
+    private int[] dispatchBatch() {
+        List<OutboxEvent> events = outboxRepo.lockPending(maxAttempts, Limit.of(batchSize));
+        if (events.isEmpty()) {
+            return new int[] { 0, 0 };
+        }
+
+        List<Long> orderIds = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (OutboxEvent.ORDER_PLACED.equals(event.getType())) {
+                orderIds.add(event.getAggregateId());
+            }
+        }
+        Map<Long, Order> orders = new HashMap<>();
+        if (!orderIds.isEmpty()) {
+            for (Order order : orderRepo.findWithItemsByIdIn(orderIds, OrderRepository.NEWEST_FIRST)) {
+                orders.put(order.getId(), order);
+            }
+        }
+
+        for (OutboxEvent event : events) {
+            try {
+                deliver(event, orders.get(event.getAggregateId()));
+            } catch (RuntimeException e) {
+                List<Long> eventIds = new ArrayList<>();
+                for (OutboxEvent locked : events) {
+                    eventIds.add(locked.getId());
+                }
+                throw new BatchFailedException(eventIds, e);
+            }
+        }
+        outboxRepo.deleteAllInBatch(events);
+        return new int[] { events.size(), events.size() };
+    }
+
+    // Returns the number delivered
+    private int dispatchEach(List<Long> eventIds) {
+        int sent = 0;
+        for (Long eventId : eventIds) {
+            try {
+                if (Boolean.TRUE.equals(tx.execute(status -> dispatchOne(eventId)))) {
+                    delivered.increment();
+                    sent++;
+                }
+            } catch (RuntimeException e) {
+                tx.executeWithoutResult(status -> outboxRepo.findById(eventId)
+                        .ifPresent(event -> event.recordFailure(e)));
+                failures.increment();
+            }
+        }
+        return sent;
+    }
+
+    private boolean dispatchOne(Long eventId) {
+        // Gone if another dispatcher took it after the batch let go of its locks
+        OutboxEvent event = outboxRepo.lockPendingById(eventId, maxAttempts).orElse(null);
+        if (event == null) {
+            return false;
+        }
+        Order order = null;
+        if (OutboxEvent.ORDER_PLACED.equals(event.getType())) {
+            List<Order> found = orderRepo.findWithItemsByIdIn(List.of(event.getAggregateId()),
+                    OrderRepository.NEWEST_FIRST);
+            order = found.isEmpty() ? null : found.get(0);
+        }
+        deliver(event, order);
+        outboxRepo.delete(event);
+        return true;
+    }
+
+    private void deliver(OutboxEvent event, Order order) {
+        if (!OutboxEvent.ORDER_PLACED.equals(event.getType())) {
+            throw new IllegalStateException("Unknown outbox event type " + event.getType());
+        }
+        // An order deleted before its event ran has nothing left to follow up
+        if (order != null) {
+            for (OrderEventListener listener : listeners) {
+                listener.orderPlaced(order);
+            }
+        }
+    }
+
+    // Thrown out of a batch transaction so that it rolls back
+    private static final class BatchFailedException extends RuntimeException {
+
+        final List<Long> eventIds;
+
+        BatchFailedException(List<Long> eventIds, RuntimeException cause) {
+            super(cause);
+            this.eventIds = eventIds;
+        }
+    }
+}
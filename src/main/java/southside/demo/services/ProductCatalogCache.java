@@ -0,0 +1,256 @@
+package southside.demo.services;
+
+import southside.demo.models.Product;
+import southside.demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process copy of the product catalog.
+ *
+ * Once the full catalog has been loaded (and fits in {@code maxEntries}) both
+ * the list and the by-id lookups are answered from memory. Product writes go
+ * through {@link #put(Product)} / {@link #remove(Long)} so the cache never has
+ * to go back to the database to stay current.
+ *
+ * Every write, stock changes included, moves {@link #version()} on, so an
+ * unchanged version means nothing a catalog response contains has changed.
+ *
+ * When full, the least recently read or written product makes room.
+ */
+@Component
+public class ProductCatalogCache implements ProductChangeListener {
+
+    private final ProductRepository repo;
+    private final int maxEntries;
+
+    // Ordered by id, which is the order findAll() returns rows in
+    private final ConcurrentSkipListMap<Long, Product> entries = new ConcurrentSkipListMap<>();
+    // The ids in entries, least recently used first. Keys are added and removed only
+    // under this cache's lock, together with entries; hits just reorder them
+    private final LinkedHashMap<Long, Boolean> recency = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile boolean complete = false;
+    private volatile List<Product> snapshot;
+
+    // Bumped on every write so a slow findAll() can't install a stale catalog.
+    // Always last, so whoever sees a new generation also sees the state it stands for
+    private final AtomicLong generation = new AtomicLong();
+
+    // Generations restart with the process; the boot time keeps versions from repeating
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private volatile long lastModified = System.currentTimeMillis();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ProductCatalogCache(ProductRepository repo,
+            @Value("${catalog.cache.max-entries:50000}") int maxEntries) {
+        this.repo = repo;
+        this.maxEntries = maxEntries;
+    }
+
+    // ======================
+    // READS
+    // ======================
+
+    public List<Product> getAll() {
+        List<Product> current = snapshot;
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+
+        if (complete) {
+            hits.increment();
+            long gen = generation.get();
+            List<Product> rebuilt = Collections.unmodifiableList(new ArrayList<>(entries.values()));
+            synchronized (this) {
+                if (gen == generation.get()) {
+                    snapshot = rebuilt;
+                }
+            }
+            return rebuilt;
+        }
+
+        misses.increment();
+        long gen = generation.get();
+        List<Product> loaded = repo.findAll();
+        if (loaded.size() > maxEntries) {
+            // Catalog is bigger than we are allowed to hold; serve it uncached
+            return loaded;
+        }
+
+        synchronized (this) {
+            if (gen == generation.get()) {
+                entries.clear();
+                synchronized (recency) {
+                    recency.clear();
+                    for (Product p : loaded) {
+                        entries.put(p.getId(), p);
+                        recency.put(p.getId(), Boolean.TRUE);
+                    }
+                }
+                complete = true;
+                snapshot = Collections.unmodifiableList(loaded);
+            }
+        }
+        return Collections.unmodifiableList(loaded);
+    }
+
+    public Product get(Long id) {
+        Product cached = entries.get(id);
+        if (cached != null || complete) {
+            // A complete catalog also answers "not found" without a query
+            hits.increment();
+            if (cached != null) {
+                touch(id);
+            }
+            return cached;
+        }
+
+        misses.increment();
+        long gen = generation.get();
+        Product loaded = repo.findById(id).orElse(null);
+        if (loaded != null) {
+            synchronized (this) {
+                if (gen == generation.get()) {
+                    store(loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /** Identifies the current state of the whole catalog; usable as a strong ETag. */
+    public String version() {
+        return epoch + "-" + generation.get();
+    }
+
+    /** When the version last changed, in epoch milliseconds. */
+    public long lastModified() {
+        return lastModified;
+    }
+
+    // ======================
+    // WRITE-THROUGH
+    // ======================
+
+    public synchronized void put(Product product) {
+        store(product);
+        snapshot = null;
+        changed();
+    }
+
+    public synchronized void remove(Long id) {
+        entries.remove(id);
+        synchronized (recency) {
+            recency.remove(id);
+        }
+        snapshot = null;
+        changed();
+    }
+
+    @Override
+    public void productSaved(Product product) {
+        put(product);
+    }
+
+    @Override
+    public void productDeleted(Long id) {
+        remove(id);
+    }
+
+    @Override
+    public synchronized void stockChanged(Long id, int delta) {
+        Product cached = entries.get(id);
+        if (cached == null || cached.getQuantity() == null) {
+            // Not held here, but a response served earlier may still show the old stock
+            changed();
+            return;
+        }
+        // Cached instances may be mid-serialization on another thread; swap in a copy
+        Product copy = new Product();
+        copy.setId(cached.getId());
+        copy.setName(cached.getName());
+        copy.setCategory(cached.getCategory());
+        copy.setSubtitle(cached.getSubtitle());
+        copy.setPrice(cached.getPrice());
+        copy.setBadge(cached.getBadge());
+        copy.setDescription(cached.getDescription());
+        copy.setImage(cached.getImage());
+        copy.setQuantity(cached.getQuantity() + delta);
+        put(copy);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        synchronized (recency) {
+            recency.clear();
+        }
+        complete = false;
+        snapshot = null;
+        changed();
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("complete", complete);
+        stats.put("version", version());
+        return stats;
+    }
+
+    // Call after the state has changed, never before
+    private void changed() {
+        generation.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+
+    // Moves the id to the most recent end; an id that is no longer held stays out
+    private void touch(Long id) {
+        synchronized (recency) {
+            recency.get(id);
+        }
+    }
+
+    private void store(Product product) {
+        boolean full = !entries.containsKey(product.getId()) && entries.size() >= maxEntries;
+        Long evicted = null;
+        synchronized (recency) {
+            if (full) {
+                Iterator<Long> eldest = recency.keySet().iterator();
+                if (eldest.hasNext()) {
+                    evicted = eldest.next();
+                    eldest.remove();
+                }
+            }
+            recency.put(product.getId(), Boolean.TRUE);
+        }
+        if (full) {
+            // Out of room: the cache no longer mirrors the whole catalog
+            if (evicted != null && entries.remove(evicted) != null) {
+                evictions.increment();
+            }
+            complete = false;
+        }
+        entries.put(product.getId(), product);
+    }
+}
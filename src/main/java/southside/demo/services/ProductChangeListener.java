@@ -0,0 +1,30 @@
+package southside.demo.services;
+
+import southside.demo.models.Product;
+
+/**
+ * Implemented by in-memory views of the catalog that need to follow product
+ * writes. Every listener bean is notified after the write has been committed.
+ */
+public interface ProductChangeListener {
+
+    void productSaved(Product product);
+
+    /**
+     * An existing product was edited; {@code previousQuantity} is the stock it
+     * held before. Listeners that only follow the product's current state can
+     * leave this to {@link #productSaved(Product)}.
+     */
+    default void productSaved(Product product, Integer previousQuantity) {
+        productSaved(product);
+    }
+
+    void productDeleted(Long id);
+
+    /**
+     * Stock was taken ({@code delta < 0}) or returned outside of a product
+     * write, e.g. at checkout.
+     */
+    default void stockChanged(Long id, int delta) {
+    }
+}
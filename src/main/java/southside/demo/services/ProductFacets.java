@@ -0,0 +1,173 @@
+package southside.demo.services;
+
+import southside.demo.models.Product;
+import southside.demo.models.ProductSummary;
+import southside.demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Category / badge / price-bucket counts for the catalog filter sidebar.
+ *
+ * Counts are kept per (category, badge, bucket) combination. That table only
+ * grows with the number of distinct combinations, not with the catalog, so
+ * narrowing the counts by the current selection never has to look at
+ * individual products. A product that a callback moves while the startup
+ * scan runs keeps the key the callback gave it, not the one in the scan's
+ * older row ({@link ScanWrites}).
+ */
+@Component
+public class ProductFacets implements ProductChangeListener {
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+    private static final String UNPRICED = "unpriced";
+
+    private final ProductRepository repo;
+    private final double[] bounds;
+    private final String[] bucketLabels;
+
+    private record Key(String category, String badge, String bucket) {
+    }
+
+    private final Map<Long, Key> keysByProduct = new HashMap<>();
+    private final Map<Key, Integer> counts = new HashMap<>();
+    private final ScanWrites scanWrites = new ScanWrites(); // guarded by this
+
+    public ProductFacets(ProductRepository repo,
+            @Value("${catalog.facets.price-buckets:500,1000,2000,5000}") double[] bounds) {
+        this.repo = repo;
+        this.bounds = bounds.clone();
+        Arrays.sort(this.bounds);
+        this.bucketLabels = new String[this.bounds.length + 1];
+        double lower = 0;
+        for (int i = 0; i < this.bounds.length; i++) {
+            bucketLabels[i] = format(lower) + "-" + format(this.bounds[i]);
+            lower = this.bounds[i];
+        }
+        bucketLabels[this.bounds.length] = format(lower) + "+";
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            scanWrites.scanStarted();
+        }
+        try {
+            Long lastId = 0L;
+            List<ProductSummary> chunk;
+            do {
+                chunk = repo.findSummariesAfter(lastId, Limit.of(LOAD_CHUNK_SIZE));
+                synchronized (this) {
+                    for (ProductSummary p : chunk) {
+                        if (!scanWrites.superseded(p.id())) {
+                            move(p.id(), new Key(p.category(), p.badge(), bucketOf(p.price())));
+                        }
+                        lastId = p.id();
+                    }
+                }
+            } while (chunk.size() == LOAD_CHUNK_SIZE);
+        } finally {
+            synchronized (this) {
+                scanWrites.scanFinished();
+            }
+        }
+    }
+
+    // ======================
+    // INCREMENTAL UPDATES
+    // ======================
+
+    @Override
+    public synchronized void productSaved(Product product) {
+        scanWrites.written(product.getId());
+        move(product.getId(), new Key(product.getCategory(), product.getBadge(), bucketOf(product.getPrice())));
+    }
+
+    @Override
+    public synchronized void productDeleted(Long id) {
+        scanWrites.written(id);
+        move(id, null);
+    }
+
+    private void move(Long id, Key next) {
+        Key previous = next == null ? keysByProduct.remove(id) : keysByProduct.put(id, next);
+        if (previous != null) {
+            counts.computeIfPresent(previous, (k, n) -> n == 1 ? null : n - 1);
+        }
+        if (next != null) {
+            counts.merge(next, 1, Integer::sum);
+        }
+    }
+
+    // ======================
+    // QUERY
+    // ======================
+
+    /**
+     * Counts for each facet, narrowed by the selection on the other facets.
+     * The category counts ignore the category filter (and likewise for badge
+     * and bucket) so the sidebar can still show the alternatives.
+     */
+    public synchronized Map<String, Object> counts(String category, String badge, String bucket) {
+        Map<String, Integer> categories = new TreeMap<>();
+        Map<String, Integer> badges = new TreeMap<>();
+        Map<String, Integer> buckets = new LinkedHashMap<>();
+        for (String label : bucketLabels) {
+            buckets.put(label, 0);
+        }
+        int total = 0;
+
+        for (Map.Entry<Key, Integer> e : counts.entrySet()) {
+            Key key = e.getKey();
+            int n = e.getValue();
+            boolean categoryOk = category == null || category.equals(key.category());
+            boolean badgeOk = badge == null || badge.equals(key.badge());
+            boolean bucketOk = bucket == null || bucket.equals(key.bucket());
+
+            if (badgeOk && bucketOk && key.category() != null) {
+                categories.merge(key.category(), n, Integer::sum);
+            }
+            if (categoryOk && bucketOk && key.badge() != null) {
+                badges.merge(key.badge(), n, Integer::sum);
+            }
+            if (categoryOk && badgeOk) {
+                buckets.merge(key.bucket(), n, Integer::sum);
+            }
+            if (categoryOk && badgeOk && bucketOk) {
+                total += n;
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("categories", categories);
+        response.put("badges", badges);
+        response.put("priceBuckets", buckets);
+        response.put("total", total);
+        return response;
+    }
+
+    private String bucketOf(Double price) {
+        if (price == null) {
+            return UNPRICED;
+        }
+        for (int i = 0; i < bounds.length; i++) {
+            if (price < bounds[i]) {
+                return bucketLabels[i];
+            }
+        }
+        return bucketLabels[bounds.length];
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+}
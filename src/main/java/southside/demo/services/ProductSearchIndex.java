@@ -0,0 +1,341 @@
+package southside.demo.services;
+
+import southside.demo.models.Product;
+import southside.demo.models.ProductSummary;
+import southside.demo.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, subtitle, category and
+ * description.
+ *
+ * Every query term must match (AND). The last term also matches as a prefix so
+ * the endpoint can drive autocomplete. Scores are the sum of field weight times
+ * inverse document frequency, with prefix-only hits discounted. The index is
+ * kept current by {@link ProductChangeListener} callbacks; a full scan only
+ * happens once at startup. That scan skips products a callback has written
+ * since it began ({@link ScanWrites}).
+ */
+@Component
+public class ProductSearchIndex implements ProductChangeListener {
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float SUBTITLE_WEIGHT = 2f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_DISCOUNT = 0.6f;
+
+    // Caps the work a short autocomplete prefix can cause
+    private static final int MAX_PREFIX_EXPANSIONS = 16;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final ProductRepository repo;
+
+    // term -> (product id -> weight of the term in that product)
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // product id -> indexed document, kept so updates can remove old terms
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScanWrites scanWrites = new ScanWrites(); // guarded by lock
+
+    private record Document(ProductSummary summary, Map<String, Float> terms) {
+    }
+
+    public ProductSearchIndex(ProductRepository repo) {
+        this.repo = repo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            scanWrites.scanStarted();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Long lastId = 0L;
+            List<Product> chunk;
+            do {
+                chunk = repo.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_CHUNK_SIZE));
+                for (Product p : chunk) {
+                    Document doc = new Document(toSummary(p), analyze(p));
+                    lock.writeLock().lock();
+                    try {
+                        if (!scanWrites.superseded(p.getId())) {
+                            put(p.getId(), doc);
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    lastId = p.getId();
+                }
+            } while (chunk.size() == LOAD_CHUNK_SIZE);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                scanWrites.scanFinished();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // ======================
+    // INCREMENTAL UPDATES
+    // ======================
+
+    @Override
+    public void productSaved(Product product) {
+        Document doc = new Document(toSummary(product), analyze(product));
+        lock.writeLock().lock();
+        try {
+            scanWrites.written(product.getId());
+            put(product.getId(), doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void productDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            scanWrites.written(id);
+            removeTerms(id);
+            documents.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Long id, Document doc) {
+        removeTerms(id);
+        documents.put(id, doc);
+        for (Map.Entry<String, Float> term : doc.terms().entrySet()) {
+            postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(id, term.getValue());
+        }
+    }
+
+    private void removeTerms(Long id) {
+        Document old = documents.get(id);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.terms().keySet()) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    // ======================
+    // QUERY
+    // ======================
+
+    public List<ProductSummary> search(String query, int limit) {
+        List<String> tokens = tokenize(query, 1);
+        if (tokens.size() > 1 && tokens.get(tokens.size() - 1).length() < MIN_PREFIX_LENGTH) {
+            // Still typing the next word; don't let one letter wipe out the results
+            tokens.remove(tokens.size() - 1);
+        }
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Term> terms = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                Term term = expand(tokens.get(i), i == tokens.size() - 1);
+                if (term.docFrequency() == 0) {
+                    return List.of();
+                }
+                terms.add(term);
+            }
+            // Drive the scan from the rarest term; the others are only probed
+            terms.sort(Comparator.comparingInt(Term::docFrequency));
+            Term driver = terms.get(0);
+
+            // The driver's own score is accumulated in a single pass over its lists
+            Map<Long, float[]> candidates = new HashMap<>(driver.docFrequency() * 4 / 3 + 1);
+            for (int i = 0; i < driver.postings().size(); i++) {
+                float factor = driver.factors()[i];
+                for (Map.Entry<Long, Float> e : driver.postings().get(i).entrySet()) {
+                    candidates.computeIfAbsent(e.getKey(), k -> new float[1])[0] += e.getValue() * factor;
+                }
+            }
+            List<Term> others = terms.subList(1, terms.size());
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1);
+            for (Map.Entry<Long, float[]> candidate : candidates.entrySet()) {
+                Long id = candidate.getKey();
+                float rest = score(others, id);
+                if (rest < 0f) {
+                    continue;
+                }
+                float score = candidate.getValue()[0] + rest;
+                if (top.size() < limit) {
+                    top.offer(new Hit(id, score));
+                } else if (score > top.peek().score()
+                        || (score == top.peek().score() && id < top.peek().id())) {
+                    top.poll();
+                    top.offer(new Hit(id, score));
+                }
+            }
+
+            List<ProductSummary> results = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                results.add(documents.get(top.poll().id()).summary());
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A query token resolved to the posting lists it matches, with per-list score factors
+    private record Term(List<Map<Long, Float>> postings, float[] factors, int docFrequency) {
+    }
+
+    // Min-heap order: lowest score first, and among equal scores the higher id goes first
+    private record Hit(long id, float score) implements Comparable<Hit> {
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Float.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(other.id, id);
+        }
+    }
+
+    private Term expand(String token, boolean allowPrefix) {
+        List<Map<Long, Float>> lists = new ArrayList<>();
+        List<Float> factors = new ArrayList<>();
+        Map<Long, Float> exact = postings.get(token);
+        if (exact != null) {
+            lists.add(exact);
+            factors.add(idf(exact.size()));
+        }
+        if (allowPrefix && token.length() >= MIN_PREFIX_LENGTH) {
+            // Every key in (token, token + MAX_VALUE) starts with token
+            Map<String, Map<Long, Float>> prefixed = postings.subMap(token, false, token + Character.MAX_VALUE, false);
+            for (Map<Long, Float> docs : mostFrequent(prefixed.values(), MAX_PREFIX_EXPANSIONS)) {
+                lists.add(docs);
+                factors.add(idf(docs.size()) * PREFIX_DISCOUNT);
+            }
+        }
+
+        float[] f = new float[factors.size()];
+        int docFrequency = 0;
+        for (int i = 0; i < f.length; i++) {
+            f[i] = factors.get(i);
+            docFrequency += lists.get(i).size();
+        }
+        return new Term(lists, f, docFrequency);
+    }
+
+    // The n longest lists, so a capped prefix keeps the completions most products share
+    // rather than the alphabetically first ones
+    private static Collection<Map<Long, Float>> mostFrequent(Collection<Map<Long, Float>> lists, int n) {
+        if (lists.size() <= n) {
+            return lists;
+        }
+        PriorityQueue<Map<Long, Float>> longest = new PriorityQueue<>(n + 1, Comparator.comparingInt(Map::size));
+        for (Map<Long, Float> docs : lists) {
+            longest.offer(docs);
+            if (longest.size() > n) {
+                longest.poll();
+            }
+        }
+        return longest;
+    }
+
+    // Sum of every term's score for the document, or -1 if any term misses it
+    private static float score(List<Term> terms, Long id) {
+        float total = 0f;
+        for (Term term : terms) {
+            float termScore = 0f;
+            List<Map<Long, Float>> lists = term.postings();
+            for (int i = 0; i < lists.size(); i++) {
+                Float weight = lists.get(i).get(id);
+                if (weight != null) {
+                    termScore += weight * term.factors()[i];
+                }
+            }
+            if (termScore == 0f) {
+                return -1f;
+            }
+            total += termScore;
+        }
+        return total;
+    }
+
+    private float idf(int docFrequency) {
+        return (float) Math.log(1.0 + (double) documents.size() / docFrequency);
+    }
+
+    // ======================
+    // ANALYSIS
+    // ======================
+
+    private static Map<String, Float> analyze(Product p) {
+        Map<String, Float> terms = new HashMap<>();
+        addField(terms, p.getName(), NAME_WEIGHT);
+        addField(terms, p.getSubtitle(), SUBTITLE_WEIGHT);
+        addField(terms, p.getCategory(), CATEGORY_WEIGHT);
+        addField(terms, p.getDescription(), DESCRIPTION_WEIGHT);
+        return terms;
+    }
+
+    private static void addField(Map<String, Float> terms, String text, float weight) {
+        for (String token : tokenize(text, MIN_TOKEN_LENGTH)) {
+            terms.merge(token, weight, Float::sum);
+        }
+    }
+
+    static List<String> tokenize(String text, int minLength) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start >= minLength) {
+                    tokens.add(lower.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static ProductSummary toSummary(Product p) {
+        return new ProductSummary(p.getId(), p.getName(), p.getCategory(), p.getPrice(), p.getBadge(),
+                p.getImage());
+    }
+}
@@ -0,0 +1,304 @@
+package southside.demo.services;
+
+import southside.demo.models.Order;
+import southside.demo.models.OrderItem;
+import southside.demo.models.OrderLine;
+import southside.demo.models.OutboxEvent;
+import southside.demo.models.Product;
+import southside.demo.repository.OrderItemRepository;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.OutboxEventRepository;
+import southside.demo.util.LongIntHashMap;
+import southside.demo.util.LongObjectHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Frequently bought together": how often each pair of products has been in
+ * the same order.
+ *
+ * The matrix is sparse and symmetric, one primitive counter map per product,
+ * so the related products of one product are a scan of its own row. Orders
+ * are added as their {@code order.placed} event commits. A chunked scan of
+ * existing orders loads the matrix at startup. It leaves out orders whose
+ * event is still in the outbox and orders delivered while it runs
+ * ({@link ScanWrites}); both are counted by their event instead.
+ *
+ * Memory is bounded by {@code recommendations.max-pairs}. Past that, pairs
+ * seen once are dropped, then twice and so on, until the matrix is back under
+ * three quarters of the limit, so counts are approximate by design.
+ */
+@Component
+public class RelatedProducts implements OrderEventListener, ProductChangeListener {
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final OrderRepository orderRepo;
+    private final OrderItemRepository orderItemRepo;
+    private final OutboxEventRepository outboxRepo;
+    private final long maxPairs;
+    private final int maxItemsPerOrder;
+
+    // product id -> (co-purchased product id -> orders containing both); guarded by lock
+    private final LongObjectHashMap<LongIntHashMap> rows = new LongObjectHashMap<>();
+    private long pairs;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScanWrites scanWrites = new ScanWrites(); // guarded by lock
+
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder prunes = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private volatile int lastPruneThreshold;
+
+    public RelatedProducts(OrderRepository orderRepo, OrderItemRepository orderItemRepo,
+            OutboxEventRepository outboxRepo,
+            @Value("${recommendations.max-pairs:2000000}") long maxPairs,
+            @Value("${recommendations.max-items-per-order:50}") int maxItemsPerOrder) {
+        this.orderRepo = orderRepo;
+        this.orderItemRepo = orderItemRepo;
+        this.outboxRepo = outboxRepo;
+        this.maxPairs = maxPairs;
+        this.maxItemsPerOrder = maxItemsPerOrder;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        lock.writeLock().lock();
+        try {
+            scanWrites.scanStarted();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Long lastId = Long.MIN_VALUE;
+            List<Long> chunk;
+            do {
+                chunk = orderRepo.findIdsAfter(lastId, Limit.of(LOAD_CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                // Read after the ids: an event gone by now was delivered before startup or is in scanWrites
+                Set<Long> undelivered = new HashSet<>(outboxRepo.findAggregateIds(OutboxEvent.ORDER_PLACED, chunk));
+                List<OrderLine> lines = orderItemRepo.findLines(chunk);
+                lock.writeLock().lock();
+                try {
+                    int from = 0;
+                    for (int i = 1; i <= lines.size(); i++) {
+                        if (i == lines.size() || !lines.get(i).orderId().equals(lines.get(from).orderId())) {
+                            Long orderId = lines.get(from).orderId();
+                            if (!undelivered.contains(orderId) && !scanWrites.superseded(orderId)) {
+                                long[] products = new long[i - from];
+                                for (int j = from; j < i; j++) {
+                                    products[j - from] = lines.get(j).productId();
+                                }
+                                record(products);
+                            }
+                            from = i;
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                lastId = chunk.get(chunk.size() - 1);
+            } while (chunk.size() == LOAD_CHUNK_SIZE);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                scanWrites.scanFinished();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // ======================
+    // INCREMENTAL UPDATES
+    // ======================
+
+    @Override
+    public void orderPlaced(Order order) {
+        lock.writeLock().lock();
+        try {
+            // Before the delivery commits, so a running scan can't also count it
+            scanWrites.written(order.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        long[] products = new long[order.getItems().size()];
+        int n = 0;
+        for (OrderItem item : order.getItems()) {
+            products[n++] = item.getProduct().getId();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Counted once the event is gone for good, not on a delivery that rolls back
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(products);
+                }
+            });
+        } else {
+            record(products);
+        }
+    }
+
+    /** Counts one order's products as bought together. */
+    public void record(long[] products) {
+        long[] distinct = Arrays.stream(products).distinct().limit(maxItemsPerOrder).toArray();
+        orders.increment();
+        if (distinct.length < 2) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < distinct.length; i++) {
+                for (int j = i + 1; j < distinct.length; j++) {
+                    if (row(distinct[i]).addTo(distinct[j], 1) == 1) {
+                        pairs++;
+                    }
+                    row(distinct[j]).addTo(distinct[i], 1);
+                }
+            }
+            if (pairs > maxPairs) {
+                prune();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void productSaved(Product product) {
+    }
+
+    @Override
+    public void productDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            LongIntHashMap row = rows.remove(id);
+            if (row == null) {
+                return;
+            }
+            row.forEach((other, count) -> {
+                LongIntHashMap otherRow = rows.get(other);
+                if (otherRow != null) {
+                    otherRow.remove(id);
+                    if (otherRow.isEmpty()) {
+                        rows.remove(other);
+                    }
+                }
+            });
+            pairs -= row.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ======================
+    // QUERY
+    // ======================
+
+    /** Up to {@code limit} product ids most often bought with the product, most frequent first. */
+    public long[] related(long productId, int limit) {
+        lookups.increment();
+        if (limit <= 0) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            LongIntHashMap row = rows.get(productId);
+            if (row == null) {
+                return new long[0];
+            }
+            // Insertion into a small sorted buffer; limit is a page of recommendations, not the catalog
+            long[] ids = new long[Math.min(limit, row.size())];
+            int[] counts = new int[ids.length];
+            int[] filled = { 0 };
+            row.forEach((other, count) -> {
+                int n = filled[0];
+                if (n == ids.length && !ranksAbove(count, other, counts[n - 1], ids[n - 1])) {
+                    return;
+                }
+                int pos = n == ids.length ? n - 1 : n;
+                while (pos > 0 && ranksAbove(count, other, counts[pos - 1], ids[pos - 1])) {
+                    ids[pos] = ids[pos - 1];
+                    counts[pos] = counts[pos - 1];
+                    pos--;
+                }
+                ids[pos] = other;
+                counts[pos] = count;
+                if (n < ids.length) {
+                    filled[0] = n + 1;
+                }
+            });
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("products", rows.size());
+            stats.put("pairs", pairs);
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("maxPairs", maxPairs);
+        stats.put("orders", orders.sum());
+        stats.put("lookups", lookups.sum());
+        stats.put("prunes", prunes.sum());
+        stats.put("lastPruneThreshold", lastPruneThreshold);
+        return stats;
+    }
+
+    // Higher count first, then lower id so ties are stable
+    private static boolean ranksAbove(int count, long id, int otherCount, long otherId) {
+        return count > otherCount || (count == otherCount && id < otherId);
+    }
+
+    private LongIntHashMap row(long productId) {
+        return rows.computeIfAbsent(productId, id -> new LongIntHashMap());
+    }
+
+    // Caller holds the write lock
+    private void prune() {
+        long target = maxPairs * 3 / 4;
+        int threshold = 0;
+        while (pairs > target) {
+            int floor = ++threshold;
+            List<Long> emptied = new ArrayList<>();
+            long[] entries = { 0 };
+            rows.forEach((id, row) -> {
+                row.removeIf(count -> count <= floor);
+                if (row.isEmpty()) {
+                    emptied.add(id);
+                }
+                entries[0] += row.size();
+            });
+            for (Long id : emptied) {
+                rows.remove(id);
+            }
+            // Each pair is stored in both rows
+            pairs = entries[0] / 2;
+        }
+        lastPruneThreshold = threshold;
+        prunes.increment();
+    }
+}
@@ -0,0 +1,272 @@
+package southside.demo.services;
+
+import southside.demo.models.Order;
+import southside.demo.models.OrderItem;
+import southside.demo.models.OrderStatusRow;
+import southside.demo.models.OutboxEvent;
+import southside.demo.models.ProductUnits;
+import southside.demo.repository.OrderItemRepository;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps the sales summary tables ({@code sales_hourly},
+ * {@code order_status_counts}, {@code product_sales}) in step with orders.
+ *
+ * New orders are counted from the {@code order.placed} outbox event and status
+ * changes by the transaction that makes them. Every change is a delta, so the
+ * two can land in either order. Deltas are merged per transaction and written
+ * just before it commits, one upsert per touched row, in key order so
+ * concurrent writers can't deadlock.
+ *
+ * {@link #rebuild()} recomputes everything from {@code orders} and
+ * {@code order_items}. It is for the first deployment and for repairs, e.g.
+ * after orders have been deleted, which the deltas don't follow. An order
+ * whose {@code order.placed} event is still in the outbox will be added as
+ * placed when the event is delivered, so the rebuild only counts what its
+ * status changes have done since, as their deltas would have. The tables are
+ * replaced at the end, so deltas that commit while the scan runs (a status
+ * change, or an event delivered after the scan has read its order) are lost
+ * until the next rebuild.
+ */
+@Component
+public class SalesRollups implements OrderEventListener {
+
+    private static final String PLACED_STATUS = "pending";
+    private static final String CANCELLED = "cancelled";
+
+    private static final class HourDelta {
+        long orders;
+        BigDecimal revenue = BigDecimal.ZERO;
+        long cancelled;
+        BigDecimal cancelledRevenue = BigDecimal.ZERO;
+    }
+
+    private static final class ProductDelta {
+        long units;
+        BigDecimal revenue = BigDecimal.ZERO;
+    }
+
+    private static final class Delta {
+        final TreeMap<LocalDateTime, HourDelta> hours = new TreeMap<>();
+        final TreeMap<String, Long> statuses = new TreeMap<>();
+        final TreeMap<Long, ProductDelta> products = new TreeMap<>();
+
+        HourDelta hour(LocalDateTime createdAt) {
+            return hours.computeIfAbsent(createdAt.truncatedTo(ChronoUnit.HOURS), h -> new HourDelta());
+        }
+
+        void status(String status, long count) {
+            statuses.merge(status, count, Long::sum);
+        }
+
+        void product(Long productId, long units, BigDecimal revenue) {
+            ProductDelta delta = products.computeIfAbsent(productId, id -> new ProductDelta());
+            delta.units += units;
+            delta.revenue = delta.revenue.add(revenue);
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final OrderRepository orderRepo;
+    private final OrderItemRepository orderItemRepo;
+    private final OutboxEventRepository outboxRepo;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+
+    public SalesRollups(JdbcTemplate jdbc, OrderRepository orderRepo, OrderItemRepository orderItemRepo,
+            OutboxEventRepository outboxRepo, PlatformTransactionManager txManager,
+            @Value("${analytics.backfill.chunk-size:1000}") int chunkSize) {
+        this.jdbc = jdbc;
+        this.orderRepo = orderRepo;
+        this.orderItemRepo = orderItemRepo;
+        this.outboxRepo = outboxRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void orderPlaced(Order order) {
+        Delta delta = current();
+        HourDelta hour = delta.hour(order.getCreatedAt());
+        hour.orders++;
+        hour.revenue = hour.revenue.add(BigDecimal.valueOf(order.getTotal()));
+        // Counted as placed; any transition since then has already moved it on
+        delta.status(PLACED_STATUS, 1);
+        for (OrderItem item : order.getItems()) {
+            delta.product(item.getProduct().getId(), item.getQuantity(),
+                    BigDecimal.valueOf(item.getPrice()).multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+    }
+
+    /** Records orders leaving their current status for {@code to}. Must run in the transaction that moves them. */
+    public void statusChanged(List<OrderStatusRow> rows, String to) {
+        Delta delta = current();
+        List<Long> cancelled = new ArrayList<>();
+        List<Long> restored = new ArrayList<>();
+        for (OrderStatusRow row : rows) {
+            delta.status(row.status(), -1);
+            delta.status(to, 1);
+            boolean cancelling = CANCELLED.equals(to);
+            if (cancelling == CANCELLED.equals(row.status())) {
+                continue;
+            }
+            int sign = cancelling ? 1 : -1;
+            HourDelta hour = delta.hour(row.createdAt());
+            hour.cancelled += sign;
+            hour.cancelledRevenue = hour.cancelledRevenue.add(BigDecimal.valueOf(sign * row.total()));
+            (cancelling ? cancelled : restored).add(row.id());
+        }
+        subtractProducts(delta, cancelled, 1);
+        subtractProducts(delta, restored, -1);
+    }
+
+    /** Recomputes every rollup from the order tables. */
+    public Map<String, Object> rebuild() {
+        long start = System.nanoTime();
+        Delta totals = new Delta();
+        long orders = 0;
+        Long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<OrderStatusRow> rows = orderRepo.findStatusRowsAfter(afterId, Limit.of(chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (OrderStatusRow row : rows) {
+                ids.add(row.id());
+            }
+            Set<Long> undelivered = new HashSet<>(outboxRepo.findAggregateIds(OutboxEvent.ORDER_PLACED, ids));
+            List<Long> live = new ArrayList<>();
+            List<Long> cancelledBeforeDelivery = new ArrayList<>();
+            for (OrderStatusRow row : rows) {
+                BigDecimal total = BigDecimal.valueOf(row.total());
+                boolean cancelled = CANCELLED.equals(row.status());
+                totals.status(row.status(), 1);
+                if (undelivered.contains(row.id())) {
+                    // orderPlaced adds it as placed later; count only the moves since, like statusChanged
+                    totals.status(PLACED_STATUS, -1);
+                    if (cancelled) {
+                        HourDelta hour = totals.hour(row.createdAt());
+                        hour.cancelled++;
+                        hour.cancelledRevenue = hour.cancelledRevenue.add(total);
+                        cancelledBeforeDelivery.add(row.id());
+                    }
+                    continue;
+                }
+                HourDelta hour = totals.hour(row.createdAt());
+                hour.orders++;
+                hour.revenue = hour.revenue.add(total);
+                if (cancelled) {
+                    hour.cancelled++;
+                    hour.cancelledRevenue = hour.cancelledRevenue.add(total);
+                } else {
+                    live.add(row.id());
+                }
+            }
+            subtractProducts(totals, live, -1);
+            subtractProducts(totals, cancelledBeforeDelivery, 1);
+            orders += rows.size();
+            afterId = rows.get(rows.size() - 1).id();
+        }
+
+        tx.executeWithoutResult(status -> {
+            jdbc.update("DELETE FROM sales_hourly");
+            jdbc.update("DELETE FROM order_status_counts");
+            jdbc.update("DELETE FROM product_sales");
+            write(totals);
+        });
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("orders", orders);
+        result.put("hours", totals.hours.size());
+        result.put("products", totals.products.size());
+        result.put("millis", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    // sign 1 takes the orders' lines out of product_sales, -1 puts them back
+    private void subtractProducts(Delta delta, List<Long> orderIds, int sign) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        for (ProductUnits units : orderItemRepo.sumByProduct(orderIds)) {
+            delta.product(units.productId(), -sign * units.units(),
+                    BigDecimal.valueOf(-sign * units.revenue()));
+        }
+    }
+
+    private Delta current() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Sales rollups change only inside a transaction");
+        }
+        Delta delta = (Delta) TransactionSynchronizationManager.getResource(this);
+        if (delta == null) {
+            Delta created = new Delta();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SalesRollups.this);
+                }
+            });
+            delta = created;
+        }
+        return delta;
+    }
+
+    private void write(Delta delta) {
+        List<Object[]> hours = new ArrayList<>();
+        delta.hours.forEach((bucket, h) -> hours.add(
+                new Object[] { bucket, h.orders, h.revenue, h.cancelled, h.cancelledRevenue }));
+        List<Object[]> statuses = new ArrayList<>();
+        delta.statuses.forEach((status, count) -> {
+            if (count != 0) {
+                statuses.add(new Object[] { status, count });
+            }
+        });
+        List<Object[]> products = new ArrayList<>();
+        delta.products.forEach((productId, p) -> products.add(new Object[] { productId, p.units, p.revenue }));
+
+        if (!hours.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO sales_hourly "
+                    + "(bucket_start, order_count, revenue, cancelled_count, cancelled_revenue) "
+                    + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+                    + "order_count = order_count + VALUES(order_count), revenue = revenue + VALUES(revenue), "
+                    + "cancelled_count = cancelled_count + VALUES(cancelled_count), "
+                    + "cancelled_revenue = cancelled_revenue + VALUES(cancelled_revenue)", hours);
+        }
+        if (!statuses.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO order_status_counts (status, order_count) VALUES (?, ?) "
+                    + "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count)", statuses);
+        }
+        if (!products.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO product_sales (product_id, units, revenue) VALUES (?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE units = units + VALUES(units), revenue = revenue + VALUES(revenue)",
+                    products);
+        }
+    }
+}
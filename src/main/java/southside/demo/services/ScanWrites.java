@@ -0,0 +1,40 @@
+package southside.demo.services;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Ids that live callbacks wrote while a startup scan of the same table was
+ * running: products from {@link ProductChangeListener}, orders from
+ * {@link OrderEventListener}.
+ *
+ * The scan may apply a row it read before such a write, which would bring
+ * back an old state or a deleted product, or count an order twice. Its owner
+ * records every callback with {@link #written} and skips scanned rows that
+ * {@link #superseded} reports. Not thread-safe: the owner calls it under the
+ * lock that guards its own state, so a check and the write it guards happen
+ * together.
+ */
+final class ScanWrites {
+
+    // Null while no scan is running, so callbacks outside a scan keep nothing
+    private Set<Long> ids;
+
+    void scanStarted() {
+        ids = new HashSet<>();
+    }
+
+    void scanFinished() {
+        ids = null;
+    }
+
+    void written(Long id) {
+        if (ids != null) {
+            ids.add(id);
+        }
+    }
+
+    boolean superseded(Long id) {
+        return ids != null && ids.contains(id);
+    }
+}
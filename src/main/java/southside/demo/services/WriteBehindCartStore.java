@@ -0,0 +1,419 @@
+package southside.demo.services;
+
+import southside.demo.config.IdBlockAllocator;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.repository.CartRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps active carts in memory and writes them back to {@code carts} and
+ * {@code cart_items} asynchronously.
+ *
+ * A mutation is applied to a copy of the user's cart, appended to the
+ * {@link CartJournal} and only then made visible, so an acknowledged change
+ * survives a crash: startup replays the journal into the tables before taking
+ * traffic. Every {@code cart.store.flush-interval} ms the carts changed since
+ * the last round are written back in one transaction, however many clicks
+ * each of them took, which bounds how far the tables lag behind.
+ *
+ * The store holds at most {@code cart.store.max-entries} carts; unchanged
+ * carts are dropped least recently used first and reload from the tables.
+ * Memory is per process, so this mode assumes a single instance.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "write-behind")
+public class WriteBehindCartStore implements CartStore {
+
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private final CartRepository cartRepo;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final IdBlockAllocator ids;
+    private final CartJournal journal;
+    private final int maxEntries;
+
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    // One user's cart. The lock is held for each mutation, for a write-back
+    // round and, through flush(), for a whole checkout transaction.
+    private static final class Slot {
+        final ReentrantLock lock = new ReentrantLock();
+        boolean loaded;
+        Cart cart; // null once loaded means the user has no cart
+        volatile long seq; // journal record holding the current state
+        volatile boolean dirty;
+        volatile long lastAccess;
+    }
+
+    public WriteBehindCartStore(CartRepository cartRepo, JdbcTemplate jdbc, PlatformTransactionManager txManager,
+            IdBlockAllocator ids, ObjectMapper mapper,
+            @Value("${cart.store.journal-dir:data/cart-journal}") Path journalDir,
+            @Value("${cart.store.journal-fsync:false}") boolean fsync,
+            @Value("${cart.store.max-entries:100000}") int maxEntries) {
+        this.cartRepo = cartRepo;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.ids = ids;
+        this.journal = new CartJournal(journalDir, fsync, mapper);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Writes the last journaled state of every cart to the tables, then starts
+     * a fresh journal. Runs before the web server takes traffic.
+     */
+    @PostConstruct
+    public void recover() {
+        List<CartJournal.Entry> pending = journal.recover();
+        List<CartJournal.Entry> carts = new ArrayList<>(pending.size());
+        for (CartJournal.Entry entry : pending) {
+            if (!entry.removed()) {
+                carts.add(entry);
+            }
+        }
+        for (int from = 0; from < carts.size(); from += WRITE_BATCH_SIZE) {
+            List<CartJournal.Entry> batch = carts.subList(from, Math.min(from + WRITE_BATCH_SIZE, carts.size()));
+            tx.executeWithoutResult(status -> write(batch));
+        }
+        journal.truncate(Long.MAX_VALUE);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeBack();
+        journal.close();
+    }
+
+    // ======================
+    // READS AND MUTATIONS
+    // ======================
+
+    @Override
+    public Optional<Cart> find(Long userId) {
+        Slot slot = lock(userId);
+        try {
+            return Optional.ofNullable(slot.cart);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Cart> update(Long userId, Consumer<Cart> mutation) {
+        Slot slot = lock(userId);
+        try {
+            if (slot.cart == null) {
+                return Optional.empty();
+            }
+            return Optional.of(apply(userId, slot, copy(slot.cart), mutation));
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    @Override
+    public Cart updateOrCreate(Long userId, Consumer<Cart> mutation) {
+        Slot slot = lock(userId);
+        try {
+            Cart working;
+            if (slot.cart != null) {
+                working = copy(slot.cart);
+            } else {
+                working = new Cart();
+                working.setUserId(userId);
+                working.setCreatedAt(LocalDateTime.now());
+                working.setUpdatedAt(working.getCreatedAt());
+            }
+            return apply(userId, slot, working, mutation);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    // The mutation runs on a private copy; readers keep seeing the old cart until it is journaled
+    private Cart apply(Long userId, Slot slot, Cart working, Consumer<Cart> mutation) {
+        mutation.accept(working);
+        if (working.getId() == null) {
+            working.setId(ids.next("carts"));
+        }
+        for (CartItem item : working.getItems()) {
+            if (item.getId() == null) {
+                item.setId(ids.next("cart_items"));
+            }
+        }
+        slot.seq = journal.append(userId, working.getId(), false, working.getTotalAmount(),
+                working.getUpdatedAt(), lines(working));
+        slot.cart = working;
+        slot.dirty = true;
+        return working;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void flush(Long userId) {
+        Slot slot = lock(userId);
+        boolean handedOver = false;
+        try {
+            if (slot.dirty) {
+                write(List.of(entry(userId, slot)));
+            }
+            // Held until the checkout completes; it owns the cart in the tables from here on
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            // The tables are now ahead of memory; reload from them next time
+                            journal.append(userId, null, true, null, null, List.of());
+                            slots.remove(userId, slot);
+                        }
+                    } finally {
+                        slot.lock.unlock();
+                    }
+                }
+            });
+            handedOver = true;
+        } finally {
+            if (!handedOver) {
+                slot.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void evict(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            Slot slot = slots.get(userId);
+            if (slot == null) {
+                continue;
+            }
+            slot.lock.lock();
+            try {
+                // A dirty cart was clicked after the sweep picked it; the write-back puts it back
+                if (!slot.dirty && slots.remove(userId, slot)) {
+                    // Keeps recovery from replaying an older state of the deleted cart
+                    journal.append(userId, null, true, null, null, List.of());
+                }
+            } finally {
+                slot.lock.unlock();
+            }
+        }
+    }
+
+    // Returns the user's slot locked and loaded; retries if the slot was retired meanwhile
+    private Slot lock(Long userId) {
+        while (true) {
+            Slot slot = slots.computeIfAbsent(userId, id -> new Slot());
+            slot.lock.lock();
+            if (slots.get(userId) != slot) {
+                slot.lock.unlock();
+                continue;
+            }
+            if (!slot.loaded) {
+                try {
+                    slot.cart = tx.execute(status -> cartRepo.findByUserId(userId).map(WriteBehindCartStore::copy)
+                            .orElse(null));
+                } catch (RuntimeException e) {
+                    slot.lock.unlock();
+                    throw e;
+                }
+                slot.loaded = true;
+            }
+            slot.lastAccess = System.nanoTime();
+            return slot;
+        }
+    }
+
+    // ======================
+    // WRITE-BACK
+    // ======================
+
+    /**
+     * Writes every cart changed since the last round, in batches of one
+     * transaction each, then drops journal segments nothing depends on.
+     */
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval:500}")
+    public void writeBack() {
+        List<Long> dirty = new ArrayList<>();
+        slots.forEach((userId, slot) -> {
+            if (slot.dirty) {
+                dirty.add(userId);
+            }
+        });
+        dirty.sort(null);
+        journal.roll();
+
+        for (int from = 0; from < dirty.size(); from += WRITE_BATCH_SIZE) {
+            writeBatch(dirty.subList(from, Math.min(from + WRITE_BATCH_SIZE, dirty.size())));
+        }
+
+        long oldestNeeded = Long.MAX_VALUE;
+        for (Slot slot : slots.values()) {
+            if (slot.dirty) {
+                oldestNeeded = Math.min(oldestNeeded, slot.seq);
+            }
+        }
+        journal.truncate(oldestNeeded);
+        evictOverflow();
+    }
+
+    private void writeBatch(List<Long> userIds) {
+        // The transaction (and its connection) comes first: request threads wait on cart
+        // locks while holding connections, so taking locks first could starve the pool
+        tx.executeWithoutResult(status -> {
+            // Carts being checked out or clicked right now are skipped until the next round
+            List<Slot> locked = new ArrayList<>();
+            try {
+                List<CartJournal.Entry> entries = new ArrayList<>();
+                for (Long userId : userIds) {
+                    Slot slot = slots.get(userId);
+                    if (slot == null || !slot.lock.tryLock()) {
+                        continue;
+                    }
+                    locked.add(slot);
+                    if (slots.get(userId) == slot && slot.dirty) {
+                        entries.add(entry(userId, slot));
+                    }
+                }
+                if (entries.isEmpty()) {
+                    return;
+                }
+                write(entries);
+                // Locks are held until the batch is committed, so no newer state can be marked clean
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        locked.forEach(slot -> slot.dirty = false);
+                    }
+                });
+            } finally {
+                // Released only after completion so a click can't slip in before the commit
+                List<Slot> held = List.copyOf(locked);
+                if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            held.forEach(slot -> slot.lock.unlock());
+                        }
+                    });
+                } else {
+                    held.forEach(slot -> slot.lock.unlock());
+                }
+            }
+        });
+    }
+
+    private void evictOverflow() {
+        int excess = slots.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<Long, Slot>> candidates = new ArrayList<>(slots.entrySet());
+        candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        for (Map.Entry<Long, Slot> candidate : candidates) {
+            if (excess <= 0) {
+                break;
+            }
+            Slot slot = candidate.getValue();
+            if (slot.lock.tryLock()) {
+                try {
+                    if (!slot.dirty && slots.remove(candidate.getKey(), slot)) {
+                        excess--;
+                    }
+                } finally {
+                    slot.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Replaces each cart's row and lines wholesale; records are complete states, so this is idempotent
+    private void write(List<CartJournal.Entry> carts) {
+        List<Object[]> cartRows = new ArrayList<>(carts.size());
+        List<Object[]> cartIds = new ArrayList<>(carts.size());
+        List<Object[]> itemRows = new ArrayList<>();
+        for (CartJournal.Entry cart : carts) {
+            Timestamp updatedAt = Timestamp.valueOf(cart.updatedAt());
+            cartRows.add(new Object[] { cart.cartId(), cart.userId(), cart.total(), updatedAt, updatedAt });
+            cartIds.add(new Object[] { cart.cartId() });
+            for (CartJournal.Line line : cart.items()) {
+                itemRows.add(new Object[] { line.id(), cart.cartId(), line.productId(), line.quantity(),
+                        line.price() });
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO carts (id, user_id, total_amount, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+                + "total_amount = VALUES(total_amount), updated_at = VALUES(updated_at)", cartRows);
+        jdbc.batchUpdate("DELETE FROM cart_items WHERE cart_id = ?", cartIds);
+        if (!itemRows.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO cart_items (id, cart_id, product_id, quantity, price) "
+                    + "VALUES (?, ?, ?, ?, ?)", itemRows);
+        }
+    }
+
+    // ======================
+    // COPIES
+    // ======================
+
+    private CartJournal.Entry entry(Long userId, Slot slot) {
+        Cart cart = slot.cart;
+        return new CartJournal.Entry(slot.seq, userId, cart.getId(), false, cart.getTotalAmount(),
+                cart.getUpdatedAt(), lines(cart));
+    }
+
+    private static List<CartJournal.Line> lines(Cart cart) {
+        List<CartJournal.Line> lines = new ArrayList<>(cart.getItems().size());
+        for (CartItem item : cart.getItems()) {
+            lines.add(new CartJournal.Line(item.getId(), item.getProduct().getId(), item.getQuantity(),
+                    item.getPrice()));
+        }
+        return lines;
+    }
+
+    // Detached deep copy; products are shared, they are never modified through a cart
+    private static Cart copy(Cart source) {
+        Cart cart = new Cart();
+        cart.setId(source.getId());
+        cart.setUserId(source.getUserId());
+        cart.setTotalAmount(source.getTotalAmount());
+        cart.setCreatedAt(source.getCreatedAt());
+        cart.setUpdatedAt(source.getUpdatedAt());
+        for (CartItem sourceItem : source.getItems()) {
+            CartItem item = new CartItem();
+            item.setId(sourceItem.getId());
+            item.setCart(cart);
+            item.setProduct(sourceItem.getProduct());
+            item.setQuantity(sourceItem.getQuantity());
+            item.setPrice(sourceItem.getPrice());
+            cart.getItems().add(item);
+        }
+        return cart;
+    }
+}
@@ -0,0 +1,236 @@
+package southside.demo.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} to {@code int} with no boxing.
+ *
+ * Absent keys read as 0, which makes it a natural counter. Not thread-safe.
+ * Key 0 marks empty slots, so it is kept in a field of its own.
+ */
+public class LongIntHashMap {
+
+    public interface Entry {
+        void accept(long key, int value);
+    }
+
+    public interface ValuePredicate {
+        boolean test(int value);
+    }
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int resizeAt;
+    private boolean hasZero;
+    private int zeroValue;
+
+    public LongIntHashMap() {
+        this(4);
+    }
+
+    public LongIntHashMap(int expected) {
+        allocate(tableSize(expected));
+    }
+
+    public int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int get(long key) {
+        if (key == 0) {
+            return hasZero ? zeroValue : 0;
+        }
+        int slot = find(key);
+        return slot < 0 ? 0 : values[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZero : find(key) >= 0;
+    }
+
+    public void put(long key, int value) {
+        if (key == 0) {
+            hasZero = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = slotFor(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size > resizeAt) {
+                rehash(keys.length << 1);
+            }
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    /** Adds {@code delta} to the key's value, starting from 0, and returns the new value. */
+    public int addTo(long key, int delta) {
+        if (key == 0) {
+            zeroValue = (hasZero ? zeroValue : 0) + delta;
+            hasZero = true;
+            return zeroValue;
+        }
+        int slot = slotFor(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            values[slot] = delta;
+            if (++size > resizeAt) {
+                rehash(keys.length << 1);
+            }
+            return delta;
+        }
+        return values[slot] += delta;
+    }
+
+    /** @return the removed value, or 0 if the key was absent */
+    public int remove(long key) {
+        if (key == 0) {
+            int old = hasZero ? zeroValue : 0;
+            hasZero = false;
+            zeroValue = 0;
+            return old;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        int old = values[slot];
+        shiftBack(slot);
+        size--;
+        return old;
+    }
+
+    /** Removes every entry whose value matches and returns how many went. */
+    public int removeIf(ValuePredicate predicate) {
+        int before = size();
+        if (hasZero && predicate.test(zeroValue)) {
+            hasZero = false;
+            zeroValue = 0;
+        }
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int kept = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && !predicate.test(oldValues[i])) {
+                kept++;
+            }
+        }
+        allocate(tableSize(kept));
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && !predicate.test(oldValues[i])) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+        return before - size();
+    }
+
+    public void forEach(Entry action) {
+        if (hasZero) {
+            action.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZero = false;
+        zeroValue = 0;
+    }
+
+    // ======================
+    // TABLE
+    // ======================
+
+    static int tableSize(int expected) {
+        int needed = (int) Math.ceil(Math.max(expected, 2) / LOAD_FACTOR);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    static int mix(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = mix(key, mask);; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            if (keys[slot] == 0) {
+                return -1;
+            }
+        }
+    }
+
+    // The key's slot, or the empty slot it would go in
+    private int slotFor(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key, mask);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    // Linear-probing delete: pull later entries of the run back so lookups never stop early
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == 0) {
+                break;
+            }
+            int home = mix(key, mask);
+            // Move the entry unless its home lies cyclically in (gap, slot]
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+    }
+}
@@ -0,0 +1,139 @@
+package southside.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import southside.demo.controllers.OrderController;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.Order;
+import southside.demo.models.Product;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.ProductRepository;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Platform-thread Tomcat against the "virtual" profile, over real HTTP with
+ * many more concurrent clients than Tomcat has request threads.
+ */
+class ThreadingLoadTests {
+
+    private static final int USERS = 1000;
+    private static final int CLIENTS = 2000;
+    private static final int REQUESTS_PER_CLIENT = 25;
+
+    // Run with -Dbenchmark=true on a Java 21 runtime
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkPlatformAgainstVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        for (int round = 0; round < 2; round++) {
+            run("platform", round, "test");
+            run("virtual", round, "test", "virtual");
+        }
+    }
+
+    private void run(String mode, int round, String... profiles) throws Exception {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(SouthsideApplication.class)
+                .profiles(profiles)
+                .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:load-" + mode + "-" + round
+                                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                        "spring.jpa.properties.hibernate.generate_statistics=false")
+                .run()) {
+            seed(app);
+            int port = ((ServletWebServerApplicationContext) app).getWebServer().getPort();
+            load(port, 200); // warm-up
+            long start = System.nanoTime();
+            long[] latencies = load(port, CLIENTS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+            System.out.printf("round %d %-8s: %d clients, %.0f req/s, p50 %.1f ms, p99 %.1f ms%n", round, mode,
+                    CLIENTS, latencies.length / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99));
+        }
+    }
+
+    // Returns per-request latencies in nanos
+    private long[] load(int port, int clients) throws Exception {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long[] latencies = new long[clients * REQUESTS_PER_CLIENT];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<Future<?>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            results.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                    long userId = 1 + random.nextInt(USERS);
+                    HttpRequest request = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + port + "/api/orders/user/" + userId)).build();
+                    long sent = System.nanoTime();
+                    HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                    latencies[next.getAndIncrement()] = System.nanoTime() - sent;
+                    if (response.statusCode() != 200) {
+                        failed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+        assertThat(failed.get()).isZero();
+        return latencies;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) ((sorted.length - 1) * p)] / 1e6;
+    }
+
+    private void seed(ConfigurableApplicationContext app) {
+        ProductRepository productRepo = app.getBean(ProductRepository.class);
+        CartRepository cartRepo = app.getBean(CartRepository.class);
+        OrderController orders = app.getBean(OrderController.class);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Product p = new Product();
+            p.setName("Load product " + i);
+            p.setPrice(100.0 + i);
+            p.setQuantity(1_000_000);
+            products.add(productRepo.save(p));
+        }
+        // One three-line order per user, so every history request loads a real order graph
+        for (long userId = 1; userId <= USERS; userId++) {
+            Cart cart = new Cart();
+            cart.setUserId(userId);
+            for (int i = 0; i < 3; i++) {
+                Product p = products.get((int) ((userId + i) % products.size()));
+                CartItem item = new CartItem();
+                item.setCart(cart);
+                item.setProduct(p);
+                item.setQuantity(1);
+                item.setPrice(p.getPrice());
+                cart.getItems().add(item);
+            }
+            cart.calculateTotal();
+            cartRepo.save(cart);
+            orders.createOrderFromCart(userId, null, new Order());
+        }
+    }
+}
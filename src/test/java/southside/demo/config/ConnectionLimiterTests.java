@@ -0,0 +1,51 @@
+package southside.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.env.MockEnvironment;
+import southside.demo.config.ConnectionLimiter.LimitedDataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+class ConnectionLimiterTests {
+
+    private final DriverManagerDataSource h2 = new DriverManagerDataSource("jdbc:h2:mem:limiter", "sa", "");
+
+    @Test
+    void waitersTimeOutUntilAConnectionIsClosed() throws Exception {
+        LimitedDataSource limited = new LimitedDataSource(h2, 2, Duration.ofMillis(50));
+        Connection first = limited.getConnection();
+        Connection second = limited.getConnection();
+
+        assertThatThrownBy(limited::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        // A second close must not hand out a permit that isn't there
+        first.close();
+        try (Connection third = limited.getConnection()) {
+            assertThat(third.isValid(1)).isTrue();
+            assertThat(limited.stats().get("available")).isEqualTo(0);
+        }
+        second.close();
+
+        assertThat(limited.stats()).containsEntry("available", 2).containsEntry("timeouts", 1L);
+    }
+
+    @Test
+    void permitsDefaultToThePoolSize() {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setMaximumPoolSize(7);
+        ConnectionLimiter limiter = new ConnectionLimiter(new MockEnvironment());
+
+        Object wrapped = limiter.postProcessAfterInitialization(pool, "dataSource");
+
+        assertThat(wrapped).isInstanceOf(LimitedDataSource.class);
+        assertThat(limiter.stats()).containsEntry("permits", 7);
+        assertThat(limiter.postProcessAfterInitialization(h2, "other")).isSameAs(h2);
+    }
+}
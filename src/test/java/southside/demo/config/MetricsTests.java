@@ -0,0 +1,118 @@
+package southside.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.Filter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tests run without metrics export unless asked; the scrape needs the Prometheus registry
+@AutoConfigureObservability
+@SpringBootTest
+@ActiveProfiles("test")
+class MetricsTests {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(1_400_000L);
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        // The servlet filter that times http.server.requests isn't part of a bare MockMvc
+        Filter observation = context.getBeansOfType(FilterRegistrationBean.class).values().stream()
+                .map(FilterRegistrationBean::getFilter)
+                .filter(ServerHttpObservationFilter.class::isInstance)
+                .findFirst().orElseThrow();
+        mvc = MockMvcBuilders.webAppContextSetup(context).addFilters(observation).build();
+    }
+
+    @Test
+    void requestsRecordTheirStatementsUnderTheirEndpoint() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(get("/api/orders/user/" + NEXT_USER.incrementAndGet()));
+        }
+
+        DistributionSummary statements = registry.get("http.server.requests.sql.statements")
+                .tag("uri", "/api/orders/user/{userId}").tag("method", "GET").summary();
+        Timer sqlTime = registry.get("http.server.requests.sql.time")
+                .tag("uri", "/api/orders/user/{userId}").tag("method", "GET").timer();
+        assertThat(statements.count()).isGreaterThanOrEqualTo(3);
+        // One query per order-history request
+        assertThat(statements.max()).isEqualTo(1);
+        assertThat(sqlTime.count()).isEqualTo(statements.count());
+        assertThat(registry.get("http.server.requests").tag("uri", "/api/orders/user/{userId}").timer().count())
+                .isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    void scrapeExposesLatencyHistogramsPoolWaitAndCacheCounters() throws Exception {
+        mvc.perform(get("/api/products"));
+
+        String scrape = mvc.perform(get("/actuator/prometheus")).andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("uri=\"/api/products\"")
+                .contains("hikaricp_connections_acquire_seconds_bucket")
+                .contains("catalog_cache_requests_total{result=\"hit\"}")
+                .contains("catalog_responses_total{result=\"render\"}")
+                .contains("outbox_pending ");
+    }
+
+    @Test
+    void asyncRequestsAreRecordedOnceWithTheirOwnStatements() throws Exception {
+        // Leaves statements behind on this thread for a stale read to pick up
+        mvc.perform(get("/api/orders/user/" + NEXT_USER.incrementAndGet()));
+        DistributionSummary export = registry.find("http.server.requests.sql.statements")
+                .tag("uri", "/api/orders/export").summary();
+        long before = export == null ? 0 : export.count();
+
+        MvcResult started = mvc.perform(get("/api/orders/export")).andReturn();
+        mvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        export = registry.get("http.server.requests.sql.statements").tag("uri", "/api/orders/export").summary();
+        assertThat(export.count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void scrapeRunsEachServicesStatsOnce() throws Exception {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        mvc.perform(get("/actuator/prometheus"));
+
+        // Back to back, so a snapshot that outlived its scrape would show up as fewer statements
+        stats.clear();
+        mvc.perform(get("/actuator/prometheus"));
+
+        // The outbox's pending and dead counts, and nothing else
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
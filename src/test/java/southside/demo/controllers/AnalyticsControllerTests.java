@@ -0,0 +1,172 @@
+package southside.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.Order;
+import southside.demo.models.Product;
+import southside.demo.models.StatusTransitionRequest;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.ProductRepository;
+import southside.demo.services.OutboxDispatcher;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AnalyticsControllerTests {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(900_000L);
+
+    @Autowired
+    private AnalyticsController analyticsController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @BeforeEach
+    void setUp() {
+        // Starts every test from rollups that match the order tables exactly
+        outboxDispatcher.dispatch();
+        analyticsController.rebuild();
+    }
+
+    @Test
+    void incrementalRollupsMatchARebuild() {
+        Product shirt = product("Rollup shirt", 300.0);
+        Product hat = product("Rollup hat", 150.0);
+        Order a = checkout(Map.of(shirt, 2, hat, 1));
+        Order b = checkout(Map.of(shirt, 1));
+        Order c = checkout(Map.of(hat, 4));
+        orderController.transitionOrderStatus(new StatusTransitionRequest(List.of(a.getId(), b.getId()), "processing"));
+        orderController.transitionOrderStatus(new StatusTransitionRequest(List.of(a.getId()), "shipped"));
+        orderController.cancelOrder(c.getId());
+        // Cancelled before its outbox event ran: the deltas still add up
+        Order d = checkout(Map.of(shirt, 5));
+        orderController.cancelOrder(d.getId());
+        orderController.updateOrderStatus(d.getId(), Map.of("status", "pending"));
+        outboxDispatcher.dispatch();
+
+        Object[] incremental = snapshot();
+        analyticsController.rebuild();
+        Object[] rebuilt = snapshot();
+
+        assertThat(incremental).isEqualTo(rebuilt);
+        assertThat(topUnits(shirt)).isEqualTo(8L);
+        assertThat(topUnits(hat)).isEqualTo(1L);
+    }
+
+    @Test
+    void rebuildLeavesOrdersWithUndeliveredEventsToTheEvent() {
+        Product scarf = product("Rollup scarf", 200.0);
+        Product belt = product("Rollup belt", 80.0);
+        checkout(Map.of(scarf, 3));
+        Order cancelled = checkout(Map.of(belt, 2));
+        orderController.cancelOrder(cancelled.getId());
+
+        // Both order.placed events are still waiting when the rebuild scans
+        analyticsController.rebuild();
+        outboxDispatcher.dispatch();
+        Map<String, Long> statuses = analyticsController.getStatusCounts().getBody();
+        Map<String, Object> day = today();
+        analyticsController.rebuild();
+
+        assertThat(analyticsController.getStatusCounts().getBody()).isEqualTo(statuses);
+        assertThat(today()).isEqualTo(day);
+        assertThat(topUnits(scarf)).isEqualTo(3L);
+        assertThat(topUnits(belt)).isNull();
+    }
+
+    @Test
+    void revenueCountsPlacedOrdersAndCancellationsSeparately() {
+        Product jacket = product("Rollup jacket", 1250.0);
+        Map<String, Object> before = today();
+
+        Order order = checkout(Map.of(jacket, 2));
+        outboxDispatcher.dispatch();
+        Map<String, Object> placed = today();
+        orderController.cancelOrder(order.getId());
+        Map<String, Object> cancelled = today();
+
+        assertThat((Long) placed.get("orders") - (Long) before.get("orders")).isEqualTo(1);
+        assertThat(amount(placed, "revenue").subtract(amount(before, "revenue"))).isEqualByComparingTo("2500");
+        assertThat(amount(cancelled, "cancelledRevenue").subtract(amount(before, "cancelledRevenue")))
+                .isEqualByComparingTo("2500");
+        assertThat(amount(cancelled, "netRevenue")).isEqualByComparingTo(amount(before, "netRevenue"));
+        assertThat(analyticsController.getStatusCounts().getBody().get("cancelled")).isPositive();
+    }
+
+    private Object[] snapshot() {
+        return new Object[] {
+                analyticsController.getStatusCounts().getBody(),
+                analyticsController.getTopProducts(100).getBody(),
+                today()
+        };
+    }
+
+    private Map<String, Object> today() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Map<String, Object>> days = analyticsController.getRevenue(now.minusDays(1), now.plusHours(1), "day")
+                .getBody();
+        for (Map<String, Object> day : days) {
+            day.replaceAll((key, value) -> value instanceof BigDecimal d ? d.stripTrailingZeros() : value);
+        }
+        return days.isEmpty() ? Map.of("orders", 0L, "revenue", BigDecimal.ZERO,
+                "cancelledRevenue", BigDecimal.ZERO, "netRevenue", BigDecimal.ZERO) : days.get(days.size() - 1);
+    }
+
+    private Long topUnits(Product product) {
+        for (Map<String, Object> row : analyticsController.getTopProducts(100).getBody()) {
+            if (row.get("productId").equals(product.getId())) {
+                return (Long) row.get("units");
+            }
+        }
+        return null;
+    }
+
+    private static BigDecimal amount(Map<String, Object> bucket, String key) {
+        return (BigDecimal) bucket.get(key);
+    }
+
+    private Order checkout(Map<Product, Integer> lines) {
+        Cart cart = new Cart();
+        cart.setUserId(NEXT_USER.incrementAndGet());
+        lines.forEach((p, quantity) -> {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(p);
+            item.setQuantity(quantity);
+            item.setPrice(p.getPrice());
+            cart.getItems().add(item);
+        });
+        cart.calculateTotal();
+        Long userId = cartRepo.save(cart).getUserId();
+        return orderController.createOrderFromCart(userId, null, new Order()).getBody();
+    }
+
+    private Product product(String name, double price) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(price);
+        p.setQuantity(1000);
+        return productRepo.save(p);
+    }
+}
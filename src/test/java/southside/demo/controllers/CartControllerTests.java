@@ -0,0 +1,213 @@
+package southside.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.CartOperation;
+import southside.demo.models.Product;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.ProductRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CartControllerTests {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(700_000L);
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private Statistics stats;
+    private Product dime;
+    private Product fifth;
+
+    @BeforeEach
+    void setUp() {
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        dime = product("Sticker", 0.1);
+        fifth = product("Pin", 0.2);
+    }
+
+    @Test
+    void totalsStayExactAcrossMutations() {
+        Long userId = NEXT_USER.incrementAndGet();
+
+        add(userId, dime, 3);
+        Cart cart = add(userId, fifth, 1);
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("0.5");
+
+        CartItem stickers = cart.findItemByProductId(dime.getId());
+        cart = cartController.updateCartItem(userId, stickers.getId(), Map.of("quantity", 7)).getBody();
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("0.9");
+
+        cart = cartController.removeItemFromCart(userId, stickers.getId()).getBody();
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("0.2");
+        assertThat(storedTotal(userId)).isEqualByComparingTo("0.2");
+    }
+
+    @Test
+    void removingByProductIdUpdatesTheTotal() {
+        Long userId = NEXT_USER.incrementAndGet();
+        add(userId, dime, 2);
+        add(userId, fifth, 2);
+
+        Cart cart = cartController.removeItemByProductId(userId, fifth.getId()).getBody();
+
+        assertThat(cart.getItems()).hasSize(1);
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("0.2");
+        assertThat(storedTotal(userId)).isEqualByComparingTo("0.2");
+    }
+
+    @Test
+    void mutationsDoNotReloadTheCart() {
+        Long userId = NEXT_USER.incrementAndGet();
+        add(userId, dime, 1);
+
+        stats.clear();
+        add(userId, dime, 1);
+
+        // Lock the cart, load its lines with their products, update the line and the cart
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void concurrentTabsNeverLoseAnUpdate() throws Exception {
+        Long userId = NEXT_USER.incrementAndGet();
+        add(userId, dime, 1);
+
+        ExecutorService tabs = Executors.newFixedThreadPool(8);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Product product = i % 2 == 0 ? dime : fifth;
+            results.add(tabs.submit(() -> add(userId, product, 1)));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        tabs.shutdown();
+
+        Cart cart = cartRepo.findByUserId(userId).orElseThrow();
+        assertThat(cart.findItemByProductId(dime.getId()).getQuantity()).isEqualTo(21);
+        assertThat(cart.findItemByProductId(fifth.getId()).getQuantity()).isEqualTo(20);
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("6.1");
+    }
+
+    @Test
+    void readingAMissingCartDoesNotCreateOne() {
+        Long userId = NEXT_USER.incrementAndGet();
+
+        Cart cart = cartController.getCartByUserId(userId).getBody();
+
+        assertThat(cart.getItems()).isEmpty();
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("0");
+        assertThat(cartRepo.findByUserId(userId)).isEmpty();
+    }
+
+    @Test
+    void batchAppliesEveryOperationInOrder() {
+        Long userId = NEXT_USER.incrementAndGet();
+        add(userId, dime, 5);
+
+        Cart cart = cartController.applyCartOperations(userId, List.of(
+                new CartOperation("add", fifth.getId(), 2),
+                new CartOperation("set", dime.getId(), 1),
+                new CartOperation("remove", fifth.getId(), null),
+                new CartOperation("add", fifth.getId(), 3))).getBody();
+
+        assertThat(cart.findItemByProductId(dime.getId()).getQuantity()).isEqualTo(1);
+        assertThat(cart.findItemByProductId(fifth.getId()).getQuantity()).isEqualTo(3);
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("0.7");
+        assertThat(storedTotal(userId)).isEqualByComparingTo("0.7");
+    }
+
+    @Test
+    void batchCostsTheSameStatementsForOneOrThirtyProducts() {
+        List<Product> catalog = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            catalog.add(product("Reorder " + i, 10.0 + i));
+        }
+        // Creates both carts so only the batch itself is measured
+        Long small = NEXT_USER.incrementAndGet();
+        Long large = NEXT_USER.incrementAndGet();
+        cartController.applyCartOperations(small, List.of());
+        cartController.applyCartOperations(large, List.of());
+
+        stats.clear();
+        cartController.applyCartOperations(small, addAll(catalog.subList(0, 1)));
+        long oneProduct = stats.getPrepareStatementCount();
+
+        stats.clear();
+        Cart cart = cartController.applyCartOperations(large, addAll(catalog)).getBody();
+        long thirtyProducts = stats.getPrepareStatementCount();
+
+        assertThat(cart.getItems()).hasSize(30);
+        assertThat(thirtyProducts).isEqualTo(oneProduct);
+    }
+
+    @Test
+    void batchWithAnUnknownProductChangesNothing() {
+        Long userId = NEXT_USER.incrementAndGet();
+        add(userId, dime, 1);
+
+        assertThatThrownBy(() -> cartController.applyCartOperations(userId, List.of(
+                new CartOperation("add", fifth.getId(), 1),
+                new CartOperation("add", -1L, 1))))
+                .hasMessageContaining("Product not found: -1");
+
+        Cart cart = cartRepo.findByUserId(userId).orElseThrow();
+        assertThat(cart.getItems()).hasSize(1);
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("0.1");
+    }
+
+    private static List<CartOperation> addAll(List<Product> products) {
+        List<CartOperation> operations = new ArrayList<>();
+        for (Product p : products) {
+            operations.add(new CartOperation("add", p.getId(), 1));
+        }
+        return operations;
+    }
+
+    private Cart add(Long userId, Product product, int quantity) {
+        return cartController.addItemToCart(userId,
+                Map.of("productId", product.getId(), "quantity", quantity)).getBody();
+    }
+
+    private BigDecimal storedTotal(Long userId) {
+        return cartRepo.findByUserId(userId).orElseThrow().getTotalAmount();
+    }
+
+    private Product product(String name, double price) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(price);
+        p.setQuantity(1000);
+        return productRepo.save(p);
+    }
+}
@@ -0,0 +1,450 @@
+package southside.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.Order;
+import southside.demo.models.Product;
+import southside.demo.models.StatusTransitionRequest;
+import southside.demo.models.StatusTransitionResult;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.ProductRepository;
+import southside.demo.services.InsufficientStockException;
+import southside.demo.services.OrderStatusStream;
+import southside.demo.services.OutboxDispatcher;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderControllerTests {
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OrderStatusStream statusStream;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Statistics stats;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        products.clear();
+        for (int i = 0; i < 30; i++) {
+            Product p = new Product();
+            p.setName("Checkout product " + i);
+            p.setPrice(100.0 + i);
+            p.setQuantity(1_000_000);
+            products.add(productRepo.save(p));
+        }
+    }
+
+    @Test
+    void checkoutUsesTheSameNumberOfStatementsForAnyCartSize() {
+        // Warm up so one-off work (generator rows, query plans) isn't measured
+        checkout(1001L, 1);
+
+        long oneLine = statementsForCheckout(1002L, 1);
+        long thirtyLines = statementsForCheckout(1003L, 30);
+
+        assertThat(thirtyLines).isEqualTo(oneLine);
+    }
+
+    @Test
+    void checkoutReservesIdBlocksWithoutASecondMainPoolConnection() throws Exception {
+        // Leave the checkout exactly one main pool connection; 90 items need new id blocks
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        List<Connection> held = new ArrayList<>();
+        try {
+            while (held.size() < pool.getMaximumPoolSize() - 1) {
+                held.add(dataSource.getConnection());
+            }
+            assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+                for (int i = 0; i < 3; i++) {
+                    assertThat(checkout(1101L + i, 30).getItems()).hasSize(30);
+                }
+            });
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    void checkoutMovesCartLinesToTheOrderAndEmptiesTheCart() {
+        Order order = checkout(2001L, 3);
+
+        assertThat(order.getItems()).hasSize(3);
+        assertThat(order.getOrderSummary()).isEqualTo("3 items");
+        assertThat(orderRepo.findWithItemsById(order.getId()).orElseThrow().getItems()).hasSize(3);
+        assertThat(cartRepo.findByUserId(2001L).orElseThrow().getItems()).isEmpty();
+
+        outboxDispatcher.dispatch();
+
+        assertThat(orderRepo.findById(order.getId()).orElseThrow().getOrderSummary())
+                .contains("Checkout product 0 x1");
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversellAHotProduct() throws Exception {
+        int stock = 100;
+        int buyers = 2000;
+        Product hot = new Product();
+        hot.setName("Limited drop");
+        hot.setPrice(2500.0);
+        hot.setQuantity(stock);
+        hot = productRepo.save(hot);
+
+        List<Cart> carts = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            Cart cart = new Cart();
+            cart.setUserId(100_000L + i);
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(hot);
+            item.setQuantity(1);
+            item.setPrice(hot.getPrice());
+            cart.getItems().add(item);
+            cart.calculateTotal();
+            carts.add(cart);
+        }
+        cartRepo.saveAll(carts);
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        long start = System.nanoTime();
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            Long userId = 100_000L + i;
+            results.add(pool.submit(() -> {
+                try {
+                    orderController.createOrderFromCart(userId, null, new Order());
+                    sold.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(); // surfaces anything other than a clean stock rejection
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        pool.shutdown();
+
+        assertThat(sold.get()).isEqualTo(stock);
+        assertThat(rejected.get()).isEqualTo(buyers - stock);
+        assertThat(productRepo.findById(hot.getId()).orElseThrow().getQuantity()).isZero();
+        assertThat(elapsedMillis).as("%d checkouts took %d ms", buyers, elapsedMillis).isLessThan(60_000);
+    }
+
+    @Test
+    void checkoutRollsBackEveryLineWhenOneIsShort() {
+        Product scarce = products.get(1);
+        scarce.setQuantity(0);
+        productRepo.save(scarce);
+        fillCart(3001L, 3);
+
+        assertThatThrownBy(() -> orderController.createOrderFromCart(3001L, null, new Order()))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining(scarce.getName());
+
+        assertThat(productRepo.findById(products.get(0).getId()).orElseThrow().getQuantity()).isEqualTo(1_000_000);
+        assertThat(cartRepo.findByUserId(3001L).orElseThrow().getItems()).hasSize(3);
+    }
+
+    @Test
+    void concurrentDuplicatesPlaceOneOrder() throws Exception {
+        fillCart(4001L, 2);
+
+        ExecutorService clicks = Executors.newFixedThreadPool(16);
+        List<Future<Order>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            results.add(clicks.submit(() -> orderController
+                    .createOrderFromCart(4001L, "place-order-4001", new Order()).getBody()));
+        }
+        List<Long> orderIds = new ArrayList<>();
+        for (Future<Order> result : results) {
+            orderIds.add(result.get().getId());
+        }
+        clicks.shutdown();
+
+        assertThat(orderIds).containsOnly(orderIds.get(0));
+        assertThat(orderRepo.findByUserId(4001L)).hasSize(1);
+        assertThat(productRepo.findById(products.get(0).getId()).orElseThrow().getQuantity()).isEqualTo(999_999);
+    }
+
+    @Test
+    void laterDuplicateReturnsTheStoredOrderWithoutTouchingTheDatabase() {
+        fillCart(5001L, 2);
+        Order first = orderController.createOrderFromCart(5001L, "retry-5001", new Order()).getBody();
+
+        stats.clear();
+        Order again = orderController.createOrderFromCart(5001L, "retry-5001", new Order()).getBody();
+
+        assertThat(again.getId()).isEqualTo(first.getId());
+        assertThat(again.getItems()).hasSize(2);
+        assertThat(stats.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void failedCheckoutLeavesTheKeyFreeForARetry() {
+        Product scarce = products.get(1);
+        scarce.setQuantity(0);
+        productRepo.save(scarce);
+        fillCart(6001L, 2);
+
+        assertThatThrownBy(() -> orderController.createOrderFromCart(6001L, "pay-6001", new Order()))
+                .isInstanceOf(InsufficientStockException.class);
+
+        scarce.setQuantity(5);
+        productRepo.save(scarce);
+        Order order = orderController.createOrderFromCart(6001L, "pay-6001", new Order()).getBody();
+
+        assertThat(order.getItems()).hasSize(2);
+        assertThat(orderRepo.findByUserId(6001L)).hasSize(1);
+    }
+
+    @Test
+    void onlyRealStatusChangesArePushed() {
+        Order order = checkout(7001L, 1);
+        long before = (long) statusStream.stats().get("published");
+
+        orderController.updateOrderStatus(order.getId(), Map.of("status", "processing"));
+        orderController.updateOrderStatus(order.getId(), Map.of("status", "processing"));
+        orderController.cancelOrder(order.getId());
+        orderController.cancelOrder(order.getId());
+
+        assertThat((long) statusStream.stats().get("published") - before).isEqualTo(2);
+    }
+
+    @Test
+    void bulkTransitionReportsWhatHappenedToEachId() {
+        Order pending = checkout(8001L, 1);
+        Order processing = checkout(8002L, 1);
+        Order cancelled = checkout(8003L, 1);
+        orderController.updateOrderStatus(processing.getId(), Map.of("status", "processing"));
+        orderController.cancelOrder(cancelled.getId());
+
+        Map<String, Object> response = orderController.transitionOrderStatus(new StatusTransitionRequest(
+                List.of(pending.getId(), processing.getId(), cancelled.getId(), -1L), "processing")).getBody();
+
+        assertThat(response.get("updated")).isEqualTo(1);
+        assertThat(response.get("results")).asList().containsExactly(
+                new StatusTransitionResult(pending.getId(), "updated", "pending"),
+                new StatusTransitionResult(processing.getId(), "unchanged", "processing"),
+                new StatusTransitionResult(cancelled.getId(), "invalid_transition", "cancelled"),
+                new StatusTransitionResult(-1L, "not_found", null));
+        assertThat(orderRepo.findById(pending.getId()).orElseThrow().getStatus()).isEqualTo("processing");
+
+        // Shipped orders can no longer be cancelled
+        orderController.transitionOrderStatus(new StatusTransitionRequest(List.of(pending.getId()), "shipped"));
+        Map<String, Object> cancel = orderController.transitionOrderStatus(
+                new StatusTransitionRequest(List.of(pending.getId()), "cancelled")).getBody();
+        assertThat(cancel.get("updated")).isEqualTo(0);
+        assertThat(orderRepo.findById(pending.getId()).orElseThrow().getStatus()).isEqualTo("shipped");
+    }
+
+    @Test
+    void cancellingPutsTheUnitsBackInStock() {
+        Order single = checkout(8101L, 2);
+        Order bulk = checkout(8102L, 1);
+        assertThat(stock(0)).isEqualTo(999_998);
+        assertThat(stock(1)).isEqualTo(999_999);
+
+        orderController.cancelOrder(single.getId());
+        orderController.transitionOrderStatus(new StatusTransitionRequest(List.of(bulk.getId()), "cancelled"));
+        // Already cancelled: nothing more comes back
+        orderController.cancelOrder(single.getId());
+
+        assertThat(stock(0)).isEqualTo(1_000_000);
+        assertThat(stock(1)).isEqualTo(1_000_000);
+
+        // The admin override can take an order out of cancelled; its units go again
+        orderController.updateOrderStatus(single.getId(), Map.of("status", "processing"));
+        assertThat(stock(0)).isEqualTo(999_999);
+        assertThat(stock(1)).isEqualTo(999_999);
+    }
+
+    @Test
+    void bulkTransitionIsTwoStatementsPerChunkAndLoadsNoOrders() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Order order = new Order();
+            order.setUserId(9000L + i);
+            order.setOrderSummary("1 item");
+            order.setPaymentMethod("cod");
+            order.setTotal(100.0);
+            orders.add(order);
+        }
+        List<Long> ids = orderRepo.saveAll(orders).stream().map(Order::getId).toList();
+
+        stats.clear();
+        Map<String, Object> response = orderController.transitionOrderStatus(
+                new StatusTransitionRequest(ids, "processing")).getBody();
+
+        assertThat(response.get("updated")).isEqualTo(300);
+        // The row lock and the UPDATE; the rollup upserts go through JDBC and aren't counted here
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(stats.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void statusListSaysWhenMoreOrdersExistAndWhereTheyContinue() {
+        String status = "listed-" + System.nanoTime();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Order order = new Order();
+            order.setUserId(9500L);
+            order.setStatus(status);
+            order.setOrderSummary("1 item");
+            order.setPaymentMethod("cod");
+            order.setTotal(100.0);
+            orders.add(orderRepo.save(order));
+        }
+
+        ResponseEntity<List<Order>> first = orderController.getOrdersByStatus(status, 2);
+        assertThat(first.getBody()).extracting(Order::getId)
+                .containsExactly(orders.get(2).getId(), orders.get(1).getId());
+        assertThat(first.getHeaders().getFirst("X-Has-More")).isEqualTo("true");
+        assertThat(first.getHeaders().getFirst(HttpHeaders.LINK))
+                .startsWith("</api/orders/page?status=" + status + "&beforeCreatedAt=")
+                .contains("&beforeId=" + orders.get(1).getId() + "&limit=2>");
+
+        Order last = first.getBody().get(1);
+        Map<String, Object> rest = orderController.getOrdersPage(status, null, null, null,
+                last.getCreatedAt(), last.getId(), 2).getBody();
+        assertThat(rest.get("items")).asList().extracting("id").containsExactly(orders.get(0).getId());
+
+        ResponseEntity<List<Order>> all = orderController.getOrdersByStatus(status, 3);
+        assertThat(all.getBody()).hasSize(3);
+        assertThat(all.getHeaders().getFirst("X-Has-More")).isEqualTo("false");
+        assertThat(all.getHeaders().containsKey(HttpHeaders.LINK)).isFalse();
+    }
+
+    @Test
+    void halfAKeysetCursorIsRejected() {
+        Order order = checkout(9601L, 1);
+
+        assertThatThrownBy(() -> orderController.getOrdersPage(null, null, null, null, order.getCreatedAt(), null, 10))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> orderController.getOrdersPage(null, null, null, null, null, order.getId(), 10))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        // The repository proxy translates the IllegalArgumentException
+        assertThatThrownBy(() -> orderRepo.findPageIds(null, null, order.getId(), 10))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Run with -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkCheckoutLatency() throws Exception {
+        int buyers = 4000;
+        for (int i = 0; i < buyers; i++) {
+            fillCart(200_000L + i, 10);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            Long userId = 200_000L + i;
+            results.add(pool.submit(() -> {
+                long start = System.nanoTime();
+                orderController.createOrderFromCart(userId, null, new Order());
+                return System.nanoTime() - start;
+            }));
+        }
+        long[] micros = new long[buyers];
+        for (int i = 0; i < buyers; i++) {
+            micros[i] = results.get(i).get() / 1000;
+        }
+        pool.shutdown();
+
+        Arrays.sort(micros);
+        System.out.printf("checkout latency over %d: p50 %d us, p99 %d us, max %d us%n", buyers,
+                micros[buyers / 2], micros[buyers * 99 / 100], micros[buyers - 1]);
+    }
+
+    private int stock(int product) {
+        return productRepo.findById(products.get(product).getId()).orElseThrow().getQuantity();
+    }
+
+    private long statementsForCheckout(Long userId, int lines) {
+        fillCart(userId, lines);
+        stats.clear();
+        orderController.createOrderFromCart(userId, null, new Order());
+        return stats.getPrepareStatementCount();
+    }
+
+    private Order checkout(Long userId, int lines) {
+        fillCart(userId, lines);
+        return orderController.createOrderFromCart(userId, null, new Order()).getBody();
+    }
+
+    private void fillCart(Long userId, int lines) {
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        for (int i = 0; i < lines; i++) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(products.get(i));
+            item.setQuantity(1);
+            item.setPrice(products.get(i).getPrice());
+            cart.getItems().add(item);
+        }
+        cart.calculateTotal();
+        cartRepo.save(cart);
+    }
+}
@@ -0,0 +1,196 @@
+package southside.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.Order;
+import southside.demo.models.Product;
+import southside.demo.repository.CartRepository;
+import southside.demo.services.CatalogResponseCache;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductControllerTests {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(1_300_000L);
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private CatalogResponseCache catalogResponses;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private MockMvc mvc;
+    private Statistics stats;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).build();
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void unchangedCatalogIsAnsweredWithoutQueryOrSerialization() throws Exception {
+        product("Etag tee", 10);
+        MockHttpServletResponse first = mvc.perform(get("/api/products")).andReturn().getResponse();
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(etag).startsWith("\"");
+        assertThat(first.getContentAsString()).contains("Etag tee");
+
+        stats.clear();
+        long renders = (long) catalogResponses.stats().get("renders");
+        MockHttpServletResponse again = mvc.perform(get("/api/products")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn().getResponse();
+
+        assertThat(again.getStatus()).isEqualTo(304);
+        assertThat(again.getContentAsByteArray()).isEmpty();
+        assertThat(stats.getPrepareStatementCount()).isZero();
+        assertThat(catalogResponses.stats().get("renders")).isEqualTo(renders);
+    }
+
+    @Test
+    void gzipIsServedFromTheSameRendering() throws Exception {
+        product("Gzip hoodie", 10);
+        MockHttpServletResponse plain = mvc.perform(get("/api/products")).andReturn().getResponse();
+        MockHttpServletResponse gzipped = mvc.perform(get("/api/products")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")).andReturn().getResponse();
+
+        assertThat(gzipped.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzipped.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(plain.getContentAsByteArray());
+        }
+        assertThat(mapper.readTree(plain.getContentAsByteArray()).isArray()).isTrue();
+    }
+
+    @Test
+    void gzipAndPlainResponsesHaveDifferentEtags() throws Exception {
+        product("Gzip etag tee", 10);
+        String plainEtag = mvc.perform(get("/api/products")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        MockHttpServletResponse gzipped = mvc.perform(get("/api/products")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")).andReturn().getResponse();
+        String gzipEtag = gzipped.getHeader(HttpHeaders.ETAG);
+
+        assertThat(gzipEtag).isNotEqualTo(plainEtag);
+        // A cache holding the plain bytes must not get a 304 for the gzipped ones, and back
+        assertThat(mvc.perform(get("/api/products").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, plainEtag)).andReturn().getResponse().getStatus()).isEqualTo(200);
+        assertThat(mvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, gzipEtag)).andReturn()
+                .getResponse().getStatus()).isEqualTo(200);
+        assertThat(mvc.perform(get("/api/products").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, gzipEtag)).andReturn().getResponse().getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void gzipRefusedWithAZeroWeightIsNotServed() throws Exception {
+        MockHttpServletResponse refused = mvc.perform(get("/api/products")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity")).andReturn().getResponse();
+        assertThat(refused.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(mapper.readTree(refused.getContentAsByteArray()).isArray()).isTrue();
+
+        assertThat(ProductController.acceptsGzip("deflate, gzip;q=0.5")).isTrue();
+        assertThat(ProductController.acceptsGzip("*;q=0.1")).isTrue();
+        assertThat(ProductController.acceptsGzip("*, gzip;q=0")).isFalse();
+        assertThat(ProductController.acceptsGzip("x-gzip")).isTrue();
+        assertThat(ProductController.acceptsGzip("gzipx, identity")).isFalse();
+    }
+
+    @Test
+    void productWritesAndStockChangesMoveTheEtag() throws Exception {
+        Product cap = product("Etag cap", 10);
+        String path = "/api/products/" + cap.getId();
+        String etag = mvc.perform(get(path)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        stats.clear();
+        assertThat(mvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn().getResponse()
+                .getStatus()).isEqualTo(304);
+        assertThat(stats.getPrepareStatementCount()).isZero();
+
+        buy(cap);
+        MockHttpServletResponse afterCheckout = mvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn().getResponse();
+        assertThat(afterCheckout.getStatus()).isEqualTo(200);
+        assertThat(mapper.readValue(afterCheckout.getContentAsByteArray(), Product.class).getQuantity()).isEqualTo(9);
+
+        String listEtag = mvc.perform(get("/api/products")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        cap.setName("Etag cap v2");
+        productController.updateProduct(cap.getId(), cap);
+        MockHttpServletResponse list = mvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, listEtag))
+                .andReturn().getResponse();
+        assertThat(list.getStatus()).isEqualTo(200);
+        assertThat(list.getContentAsString()).contains("Etag cap v2");
+    }
+
+    @Test
+    void pricePagesNeedThePriceHalfOfTheCursor() throws Exception {
+        Product tee = product("Cursor tee", 5);
+        String page = "/api/products/page?sort=price&afterId=" + tee.getId();
+
+        assertThat(mvc.perform(get(page)).andReturn().getResponse().getStatus()).isEqualTo(400);
+        assertThat(mvc.perform(get("/api/products/page?sort=price&afterPrice=" + tee.getPrice())).andReturn()
+                .getResponse().getStatus()).isEqualTo(400);
+        assertThat(mvc.perform(get("/api/products/page?afterId=" + tee.getId() + "&afterPrice=" + tee.getPrice()))
+                .andReturn().getResponse().getStatus()).isEqualTo(400);
+
+        MockHttpServletResponse next = mvc.perform(get(page + "&afterPrice=" + tee.getPrice())).andReturn()
+                .getResponse();
+        assertThat(next.getStatus()).isEqualTo(200);
+        assertThat(next.getContentAsString()).doesNotContain("Cursor tee");
+    }
+
+    private void buy(Product product) {
+        Cart cart = new Cart();
+        cart.setUserId(NEXT_USER.incrementAndGet());
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setProduct(product);
+        item.setQuantity(1);
+        item.setPrice(product.getPrice());
+        cart.getItems().add(item);
+        cart.calculateTotal();
+        orderController.createOrderFromCart(cartRepo.save(cart).getUserId(), null, new Order());
+    }
+
+    private Product product(String name, int quantity) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(300.0);
+        p.setQuantity(quantity);
+        return productController.createProduct(p);
+    }
+}
@@ -0,0 +1,168 @@
+package southside.demo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import southside.demo.models.Order;
+import southside.demo.models.OrderItem;
+import southside.demo.models.Product;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderRepositoryTests {
+
+    private static final int ORDERS = 8;
+    private static final int ITEMS_PER_ORDER = 4;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Statistics stats;
+
+    @BeforeEach
+    void setUp() {
+        orderRepo.deleteAll();
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < ITEMS_PER_ORDER * 2; i++) {
+            Product p = new Product();
+            p.setName("Product " + i);
+            p.setPrice(100.0 + i);
+            p.setDescription("A long description that order views should not need");
+            products.add(productRepo.save(p));
+        }
+
+        for (int o = 0; o < ORDERS; o++) {
+            Order order = new Order();
+            order.setUserId(o % 2 == 0 ? 1L : 2L);
+            order.setStatus(o % 2 == 0 ? "pending" : "shipped");
+            order.setOrderSummary("summary");
+            order.setPaymentMethod("cod");
+            order.setTotal(0.0);
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setProduct(products.get((o + i) % products.size()));
+                item.setQuantity(1);
+                item.setPrice(100.0);
+                order.getItems().add(item);
+            }
+            orderRepo.save(order);
+        }
+
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findAllLoadsItemsAndProductsInOneStatement() {
+        List<Order> orders = countingStatements(() -> orderRepo.findAll());
+
+        assertThat(orders).hasSize(ORDERS);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByStatusLoadsItemsAndProductsInOneStatement() {
+        List<Order> orders = countingStatements(() -> orderRepo.findByStatus("pending"));
+
+        assertThat(orders).hasSize(ORDERS / 2);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByUserIdLoadsItemsAndProductsInOneStatement() {
+        List<Order> orders = countingStatements(() -> orderRepo.findByUserIdOrderByCreatedAtDesc(2L));
+
+        assertThat(orders).hasSize(ORDERS / 2);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void orderGraphsNeverReadTheProductDescription() throws Exception {
+        String json = tx.execute(status -> {
+            Order order = orderRepo.findByStatus("pending").get(0);
+            for (OrderItem item : order.getItems()) {
+                // Only the description-free ProductCard is fetched
+                assertThat(Hibernate.isInitialized(item.getProduct())).isFalse();
+                assertThat(Hibernate.isInitialized(item.getProductCard())).isTrue();
+            }
+            try {
+                return objectMapper.writeValueAsString(order);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(json).contains("\"name\":\"Product ").doesNotContain("description");
+    }
+
+    @Test
+    void pageOfOrdersTakesTwoStatements() {
+        List<Order> orders = countingStatements(() -> {
+            List<Long> ids = orderRepo.findIdsNewestFirst(PageRequest.of(1, 3));
+            return orderRepo.findWithItemsByIdIn(ids, OrderRepository.NEWEST_FIRST);
+        });
+
+        assertThat(orders).hasSize(3);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void keysetPagesWalkEveryOrderOnce() {
+        OrderFilter shipped = new OrderFilter(null, "shipped", null, null);
+        List<Long> seen = new ArrayList<>();
+        Order last = null;
+        do {
+            Order cursor = last;
+            List<Order> page = countingStatements(() -> orderRepo.findPage(shipped,
+                    cursor == null ? null : cursor.getCreatedAt(), cursor == null ? null : cursor.getId(), 3));
+            assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+            page.forEach(o -> seen.add(o.getId()));
+            last = page.size() == 3 ? page.get(2) : null;
+        } while (last != null);
+
+        assertThat(seen).hasSize(ORDERS / 2).doesNotHaveDuplicates();
+    }
+
+    // Runs the query in a fresh session and walks the graph the way JSON serialization would
+    private List<Order> countingStatements(Supplier<List<Order>> query) {
+        return tx.execute(status -> {
+            stats.clear();
+            List<Order> orders = query.get();
+            for (Order order : orders) {
+                assertThat(order.getItems()).hasSize(ITEMS_PER_ORDER);
+                for (OrderItem item : order.getItems()) {
+                    assertThat(item.getProductCard().getName()).startsWith("Product");
+                }
+            }
+            return orders;
+        });
+    }
+}
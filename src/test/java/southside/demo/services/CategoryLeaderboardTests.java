@@ -0,0 +1,287 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import southside.demo.controllers.OrderController;
+import southside.demo.controllers.ProductController;
+import southside.demo.models.BestSeller;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.Order;
+import southside.demo.models.Product;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.OrderItemRepository;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.OutboxEventRepository;
+import southside.demo.services.CategoryLeaderboard.Window;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CategoryLeaderboardTests {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(1_200_000L);
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private CategoryLeaderboard leaderboard;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    @Autowired
+    private OrderItemRepository orderItemRepo;
+
+    @Autowired
+    private OutboxEventRepository outboxRepo;
+
+    @Test
+    void checkoutsFeedTheCategoryRail() {
+        Product tee = product("Rail tee", "Rail shirts");
+        Product polo = product("Rail polo", "Rail shirts");
+        Product cap = product("Rail cap", "Rail hats");
+        checkout(Map.of(tee, 1, polo, 3));
+        checkout(Map.of(polo, 1, cap, 5));
+        outboxDispatcher.dispatch();
+        // Readers see the last published ranking until the next refresh
+        assertThat(productController.getBestSellers("Rail shirts", "hour", 10)).isEmpty();
+
+        leaderboard.refresh();
+
+        List<BestSeller> shirts = productController.getBestSellers("Rail shirts", "hour", 10);
+        assertThat(shirts).extracting(b -> b.product().name()).containsExactly("Rail polo", "Rail tee");
+        assertThat(shirts).extracting(BestSeller::units).containsExactly(4L, 1L);
+        assertThat(productController.getBestSellers("Rail hats", "week", 10))
+                .extracting(BestSeller::units).containsExactly(5L);
+        assertThat(productController.getBestSellers(CategoryLeaderboard.ALL, "day", 20))
+                .extracting(b -> b.product().id()).contains(tee.getId(), polo.getId(), cap.getId());
+    }
+
+    @Test
+    void salesSlideOutOfEachWindow() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-02T10:00:00Z"));
+        CategoryLeaderboard local = new CategoryLeaderboard(orderRepo, orderItemRepo, outboxRepo, clock, 16, 10);
+        local.record("Hats", 1, 2, clock.now());
+        local.record("Hats", 2, 1, clock.now().minusMinutes(90));
+        // Older than the longest window, so never counted
+        local.record("Hats", 3, 9, clock.now().minusDays(8));
+        local.refresh();
+
+        assertThat(local.top("Hats", Window.HOUR, 5)).containsExactly(new CategoryLeaderboard.Entry(1, 2));
+        assertThat(local.top("Hats", Window.WEEK, 5)).extracting(CategoryLeaderboard.Entry::productId)
+                .containsExactly(1L, 2L);
+
+        clock.advance(Duration.ofHours(2));
+        local.refresh();
+        assertThat(local.top("Hats", Window.HOUR, 5)).isEmpty();
+        assertThat(local.top("Hats", Window.DAY, 5)).hasSize(2);
+
+        clock.advance(Duration.ofDays(7));
+        local.refresh();
+        assertThat(local.top("Hats", Window.WEEK, 5)).isEmpty();
+    }
+
+    @Test
+    void boundedSketchKeepsTheHeavyHitters() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-02T10:00:00Z"));
+        CategoryLeaderboard local = new CategoryLeaderboard(orderRepo, orderItemRepo, outboxRepo, clock, 8, 3);
+        // 1750 units over 8 counters: anything above 219 is guaranteed to hold on to its counter
+        for (int i = 0; i < 1000; i++) {
+            local.record("Socks", 10_000 + i, 1, clock.now());
+            if (i % 4 == 0) {
+                local.record("Socks", 1, 1, clock.now());
+                local.record("Socks", 2, 2, clock.now());
+            }
+        }
+        local.refresh();
+
+        assertThat(local.top("Socks", Window.HOUR, 3)).extracting(CategoryLeaderboard.Entry::productId)
+                .startsWith(2L, 1L).hasSize(3);
+
+        CategoryLeaderboard.Sketch sketch = new CategoryLeaderboard.Sketch(8);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(i, 1);
+        }
+        long[] counters = new long[2];
+        sketch.forEach((id, count) -> {
+            counters[0]++;
+            counters[1] += count;
+        });
+        assertThat(counters[0]).isEqualTo(8);
+        assertThat(counters[1]).isEqualTo(1000);
+    }
+
+    @Test
+    void bootstrapRefillsFromStoredOrders() {
+        Product scarf = product("Bootstrap scarf", "Bootstrap knits");
+        checkout(Map.of(scarf, 2));
+        outboxDispatcher.dispatch();
+
+        CategoryLeaderboard fresh = new CategoryLeaderboard(orderRepo, orderItemRepo, outboxRepo,
+                Clock.systemDefaultZone(), 64, 20);
+        fresh.bootstrap();
+
+        assertThat(fresh.top("Bootstrap knits", Window.DAY, 5))
+                .containsExactly(new CategoryLeaderboard.Entry(scarf.getId(), 2));
+    }
+
+    @Test
+    void bootstrapLeavesOrdersWithUndeliveredEventsToTheEvent() {
+        Product mittens = product("Bootstrap mittens", "Bootstrap gloves");
+        Order order = checkout(Map.of(mittens, 3));
+
+        CategoryLeaderboard fresh = new CategoryLeaderboard(orderRepo, orderItemRepo, outboxRepo,
+                Clock.systemDefaultZone(), 64, 20);
+        fresh.bootstrap();
+        assertThat(fresh.top("Bootstrap gloves", Window.DAY, 5)).isEmpty();
+
+        // The event, delivered after the scan, is what counts it
+        fresh.orderPlaced(order);
+        fresh.refresh();
+        assertThat(fresh.top("Bootstrap gloves", Window.DAY, 5))
+                .containsExactly(new CategoryLeaderboard.Entry(mittens.getId(), 3));
+    }
+
+    // Run with -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkConcurrentUpdates() throws Exception {
+        CategoryLeaderboard large = new CategoryLeaderboard(orderRepo, orderItemRepo, outboxRepo,
+                Clock.systemDefaultZone(), 64, 20);
+        String[] categories = new String[20];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = "Category " + i;
+        }
+        int perThread = 500_000;
+        for (int threads : new int[] { 1, 4, 16, 32 }) {
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicLong reads = new AtomicLong();
+            // A refresher and page views run alongside the writers, as in production
+            Thread refresher = new Thread(() -> {
+                while (!done.get()) {
+                    large.refresh();
+                }
+            });
+            Thread reader = new Thread(() -> {
+                while (!done.get()) {
+                    large.top(categories[ThreadLocalRandom.current().nextInt(categories.length)], Window.DAY, 10);
+                    reads.incrementAndGet();
+                }
+            });
+            refresher.start();
+            reader.start();
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    LocalDateTime now = LocalDateTime.now();
+                    for (int i = 0; i < perThread; i++) {
+                        // Skewed so each category has a few clear best sellers and a long tail
+                        long productId = 1 + (long) Math.abs(random.nextGaussian() * 500);
+                        large.record(categories[(int) (productId % categories.length)], productId, 1, now);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            long nanos = System.nanoTime() - start;
+            pool.shutdown();
+            done.set(true);
+            refresher.join();
+            reader.join();
+
+            System.out.printf("%d writer threads: %.0f line updates/s, %d lock-free reads meanwhile%n", threads,
+                    threads * (double) perThread / (nanos / 1e9), reads.get());
+        }
+    }
+
+    private Order checkout(Map<Product, Integer> lines) {
+        Cart cart = new Cart();
+        cart.setUserId(NEXT_USER.incrementAndGet());
+        lines.forEach((p, quantity) -> {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(p);
+            item.setQuantity(quantity);
+            item.setPrice(p.getPrice());
+            cart.getItems().add(item);
+        });
+        cart.calculateTotal();
+        return orderController.createOrderFromCart(cartRepo.save(cart).getUserId(), null, new Order()).getBody();
+    }
+
+    private Product product(String name, String category) {
+        Product p = new Product();
+        p.setName(name);
+        p.setCategory(category);
+        p.setPrice(250.0);
+        p.setQuantity(100);
+        // Through the controller so the catalog the rail reads from sees it
+        return productController.createProduct(p);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        LocalDateTime now() {
+            return LocalDateTime.ofInstant(instant, getZone());
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
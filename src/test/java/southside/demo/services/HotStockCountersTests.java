@@ -0,0 +1,215 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import southside.demo.controllers.OrderController;
+import southside.demo.controllers.ProductController;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.Order;
+import southside.demo.models.Product;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.ProductRepository;
+import southside.demo.repository.StockReservationRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest(properties = {
+        "inventory.hot.enabled=true",
+        // Flushes are driven by the tests
+        "inventory.hot.flush-interval=3600000"
+})
+@ActiveProfiles("test")
+class HotStockCountersTests {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(500_000L);
+
+    @Autowired
+    private HotStockCounters hotStock;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private StockReservationRepository reservationRepo;
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    @BeforeEach
+    void setUp() {
+        hotStock.flush();
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversellATrackedProduct() throws Exception {
+        Product hot = product("Tracked drop", 100);
+        hotStock.track(hot.getId());
+
+        int[] outcome = checkoutStorm(hot, 1000, 32);
+
+        assertThat(outcome[0]).isEqualTo(100);
+        assertThat(outcome[1]).isEqualTo(900);
+        assertThat(hotStock.available(hot.getId())).isZero();
+        // The row is untouched until the log is flushed
+        assertThat(productRepo.findById(hot.getId()).orElseThrow().getQuantity()).isEqualTo(100);
+        assertThat(reservationRepo.pendingQuantity(hot.getId())).isEqualTo(100);
+
+        hotStock.flush();
+
+        assertThat(productRepo.findById(hot.getId()).orElseThrow().getQuantity()).isZero();
+        assertThat(reservationRepo.pendingQuantity(hot.getId())).isZero();
+    }
+
+    @Test
+    void failedCheckoutHandsTrackedStockBack() {
+        Product hot = product("Tracked tee", 10);
+        Product soldOut = product("Sold out cap", 0);
+        hotStock.track(hot.getId());
+        Long userId = cart(hot, soldOut);
+
+        assertThatThrownBy(() -> orderController.createOrderFromCart(userId, null, new Order()))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("Sold out cap");
+
+        assertThat(hotStock.available(hot.getId())).isEqualTo(10);
+        assertThat(reservationRepo.pendingQuantity(hot.getId())).isZero();
+    }
+
+    @Test
+    void countersRebuildFromUnflushedReservations() {
+        Product hot = product("Tracked hoodie", 20);
+        hotStock.track(hot.getId());
+        orderController.createOrderFromCart(cart(hot), null, new Order());
+        orderController.createOrderFromCart(cart(hot), null, new Order());
+
+        // What a restart does: stored quantity minus the log that never reached it
+        hotStock.track(hot.getId());
+
+        assertThat(hotStock.available(hot.getId())).isEqualTo(18);
+    }
+
+    @Test
+    void restockDuringAnUncommittedCheckoutKeepsItsUnitsTaken() {
+        Product hot = product("Tracked beanie", 10);
+        hotStock.track(hot.getId());
+
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            Map<Long, Integer> quantities = new TreeMap<>(Map.of(hot.getId(), 3));
+            assertThat(hotStock.reserve(quantities)).isNull();
+
+            // The reservation's log row isn't committed yet when the edit lands
+            Product edit = new Product();
+            edit.setName(hot.getName());
+            edit.setPrice(hot.getPrice());
+            edit.setQuantity(20);
+            productController.updateProduct(hot.getId(), edit);
+        });
+
+        assertThat(hotStock.available(hot.getId())).isEqualTo(17);
+        hotStock.flush();
+        assertThat(productRepo.findById(hot.getId()).orElseThrow().getQuantity()).isEqualTo(17);
+    }
+
+    // Run with -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkTrackedAgainstRowLockedCheckout() throws Exception {
+        int buyers = 4000;
+        for (int round = 0; round < 2; round++) {
+            Product direct = product("Row locked " + round, buyers);
+            Product tracked = product("Tracked " + round, buyers);
+            hotStock.track(tracked.getId());
+
+            long directNanos = timed(direct, buyers);
+            long trackedNanos = timed(tracked, buyers);
+            hotStock.flush();
+
+            System.out.printf("round %d: row locked %.0f checkouts/s, tracked %.0f checkouts/s%n", round,
+                    buyers / (directNanos / 1e9), buyers / (trackedNanos / 1e9));
+        }
+    }
+
+    private long timed(Product product, int buyers) throws Exception {
+        long start = System.nanoTime();
+        int[] outcome = checkoutStorm(product, buyers, 32);
+        assertThat(outcome[0]).isEqualTo(buyers);
+        return System.nanoTime() - start;
+    }
+
+    // Returns {sold, rejected}
+    private int[] checkoutStorm(Product product, int buyers, int threads) throws Exception {
+        List<Long> userIds = new ArrayList<>(buyers);
+        for (int i = 0; i < buyers; i++) {
+            userIds.add(cart(product));
+        }
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (Long userId : userIds) {
+            results.add(pool.submit(() -> {
+                try {
+                    orderController.createOrderFromCart(userId, null, new Order());
+                    sold.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+        return new int[] { sold.get(), rejected.get() };
+    }
+
+    private Product product(String name, int quantity) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(1500.0);
+        p.setQuantity(quantity);
+        return productRepo.save(p);
+    }
+
+    private Long cart(Product... products) {
+        Cart cart = new Cart();
+        cart.setUserId(NEXT_USER.incrementAndGet());
+        for (Product p : products) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(p);
+            item.setQuantity(1);
+            item.setPrice(p.getPrice());
+            cart.getItems().add(item);
+        }
+        cart.calculateTotal();
+        return cartRepo.save(cart).getUserId();
+    }
+}
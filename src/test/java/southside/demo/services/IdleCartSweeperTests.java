@@ -0,0 +1,77 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import southside.demo.models.Cart;
+import southside.demo.models.Product;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.ProductRepository;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@SpringBootTest(properties = {
+        "cart.sweeper.enabled=false",
+        "cart.sweeper.ttl=7d",
+        "cart.sweeper.batch-size=2",
+        "cart.sweeper.pause=0"
+})
+@ActiveProfiles("test")
+class IdleCartSweeperTests {
+
+    @Autowired
+    private IdleCartSweeper sweeper;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void deletesOnlyCartsIdlePastTheTtlInBatches() {
+        Product product = new Product();
+        product.setName("Sweeper sock");
+        product.setPrice(99.0);
+        product = productRepo.save(product);
+
+        List<Long> idle = new ArrayList<>();
+        List<Long> active = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Cart cart = new Cart();
+            cart.setUserId(800_000L + i);
+            cart.addItem(product, 1);
+            cart = cartRepo.save(cart);
+            (i < 5 ? idle : active).add(cart.getId());
+        }
+        Timestamp longAgo = Timestamp.valueOf(LocalDateTime.now().minusDays(8));
+        for (Long id : idle) {
+            jdbc.update("UPDATE carts SET updated_at = ? WHERE id = ?", longAgo, id);
+        }
+        long runsBefore = (long) sweeper.stats().get("runs");
+
+        int deleted = sweeper.sweep();
+
+        assertThat(deleted).isEqualTo(5);
+        assertThat(cartRepo.findAllById(idle)).isEmpty();
+        assertThat(cartRepo.findAllById(active)).hasSize(2);
+        Integer orphans = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM cart_items i LEFT JOIN carts c ON c.id = i.cart_id WHERE c.id IS NULL",
+                Integer.class);
+        assertThat(orphans).isZero();
+
+        Map<String, Object> stats = sweeper.stats();
+        assertThat((long) stats.get("runs")).isEqualTo(runsBefore + 1);
+        assertThat((long) stats.get("cartsDeleted")).isGreaterThanOrEqualTo(5);
+    }
+}
@@ -0,0 +1,153 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import southside.demo.models.Order;
+import southside.demo.models.OrderItem;
+import southside.demo.models.Product;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.ProductRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderExportServiceTests {
+
+    private static final AtomicLong NEXT_RUN = new AtomicLong();
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private MockMvc mvc;
+    // Statuses of this run's orders, so other tests' orders never match the filter
+    private String shipped;
+    private String pending;
+    private Product tee;
+    private Product cap;
+    private Order first;
+    private Order second;
+    private Order other;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).build();
+        long run = NEXT_RUN.incrementAndGet();
+        shipped = "export-shipped-" + run;
+        pending = "export-pending-" + run;
+
+        tee = product("Tee, \"limited\"", 750.0);
+        cap = product("Cap", 300.0);
+        first = order(shipped, tee, cap);
+        second = order(shipped, cap);
+        other = order(pending, tee);
+    }
+
+    @Test
+    void ndjsonHasOneLinePerOrderWithItsItems() throws Exception {
+        MvcResult result = export("/api/orders/export?status=" + shipped);
+
+        assertThat(result.getResponse().getContentType()).startsWith("application/x-ndjson");
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+
+        JsonNode order = mapper.readTree(lines[0]);
+        assertThat(order.get("id").asLong()).isEqualTo(first.getId());
+        assertThat(order.get("status").asText()).isEqualTo(shipped);
+        assertThat(order.get("items")).hasSize(2);
+        assertThat(order.get("items").get(0).get("productName").asText()).isEqualTo("Tee, \"limited\"");
+        assertThat(order.get("items").get(1).get("productId").asLong()).isEqualTo(cap.getId());
+        assertThat(mapper.readTree(lines[1]).get("id").asLong()).isEqualTo(second.getId());
+    }
+
+    @Test
+    void csvHasOneLinePerItemAndQuotesValuesThatNeedIt() throws Exception {
+        MvcResult result = export("/api/orders/export?format=csv&status=" + shipped);
+
+        assertThat(result.getResponse().getContentType()).startsWith("text/csv");
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(4);
+        assertThat(lines[0]).startsWith("order_id,created_at,user_id,status");
+        assertThat(lines[1]).startsWith(first.getId() + ",")
+                .contains("," + tee.getId() + ",\"Tee, \"\"limited\"\"\",1,750.0");
+        assertThat(lines[2]).startsWith(first.getId() + ",").contains("," + cap.getId() + ",Cap,1,300.0");
+        assertThat(lines[3]).startsWith(second.getId() + ",");
+    }
+
+    @Test
+    void filtersNarrowTheExport() throws Exception {
+        LocalDateTime from = other.getCreatedAt().minusMinutes(1);
+        LocalDateTime to = other.getCreatedAt().plusMinutes(1);
+
+        String lines = export("/api/orders/export?status=" + pending + "&from=" + from + "&to=" + to)
+                .getResponse().getContentAsString();
+        assertThat(lines.split("\n")).hasSize(1);
+        assertThat(mapper.readTree(lines).get("id").asLong()).isEqualTo(other.getId());
+
+        mvc.perform(asyncDispatch(mvc.perform(get("/api/orders/export?status=" + pending + "&from=" + to))
+                .andReturn()))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+    }
+
+    private MvcResult export(String url) throws Exception {
+        MvcResult started = mvc.perform(get(url)).andReturn();
+        return mvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+    }
+
+    private Product product(String name, double price) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(price);
+        p.setQuantity(100);
+        return productRepo.save(p);
+    }
+
+    private Order order(String status, Product... products) {
+        Order order = new Order();
+        order.setUserId(1_500_000L);
+        order.setStatus(status);
+        order.setOrderSummary(products.length + " items");
+        order.setPaymentMethod("cod");
+        List<OrderItem> items = new ArrayList<>();
+        double total = 0;
+        for (Product p : products) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(p);
+            item.setQuantity(1);
+            item.setPrice(p.getPrice());
+            items.add(item);
+            total += p.getPrice();
+        }
+        order.getItems().addAll(items);
+        order.setTotal(total);
+        return orderRepo.save(order);
+    }
+}
@@ -0,0 +1,150 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import southside.demo.models.Order;
+import southside.demo.models.OrderStatusChange;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class OrderStatusStreamTests {
+
+    private final OrderStatusStream stream = new OrderStatusStream(Duration.ofMinutes(1), 4, 2, 2);
+
+    @AfterEach
+    void tearDown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void changesReachOnlyTheOwnersStreams() throws Exception {
+        RecordingEmitter mine = new RecordingEmitter();
+        RecordingEmitter theirs = new RecordingEmitter();
+        stream.register(1L, mine);
+        stream.register(2L, theirs);
+
+        stream.publish(order(10L, 1L, "shipped"));
+
+        assertThat(mine.next()).isEqualTo("10=shipped");
+        assertThat(theirs.events.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void slowSubscriberGetsOnlyTheLatestStatusPerOrder() throws Exception {
+        RecordingEmitter slow = new RecordingEmitter();
+        slow.hold();
+        stream.register(1L, slow);
+
+        stream.publish(order(10L, 1L, "processing"));
+        slow.awaitBlocked();
+        // Queued behind the blocked write
+        stream.publish(order(11L, 1L, "processing"));
+        stream.publish(order(11L, 1L, "shipped"));
+        stream.publish(order(11L, 1L, "delivered"));
+        slow.release();
+
+        assertThat(List.of(slow.next(), slow.next())).containsExactly("10=processing", "11=delivered");
+        assertThat(stream.stats().get("coalesced")).isEqualTo(2L);
+    }
+
+    @Test
+    void overflowingBufferIsReplacedByAResync() throws Exception {
+        RecordingEmitter slow = new RecordingEmitter();
+        slow.hold();
+        stream.register(1L, slow);
+
+        stream.publish(order(1L, 1L, "processing"));
+        slow.awaitBlocked();
+        for (long id = 2; id <= 7; id++) {
+            stream.publish(order(id, 1L, "processing"));
+        }
+        stream.publish(order(8L, 1L, "shipped"));
+        slow.release();
+
+        assertThat(slow.next()).isEqualTo("1=processing");
+        assertThat(slow.next()).isEqualTo("resync");
+        assertThat(slow.events.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(stream.stats().get("overflows")).isEqualTo(1L);
+    }
+
+    @Test
+    void extraTabsCloseTheOldestStream() {
+        RecordingEmitter first = new RecordingEmitter();
+        stream.register(1L, first);
+        stream.register(1L, new RecordingEmitter());
+        stream.register(1L, new RecordingEmitter());
+
+        assertThat(first.completed).isTrue();
+        assertThat(stream.stats().get("connections")).isEqualTo(2);
+    }
+
+    private static Order order(Long id, Long userId, String status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId(userId);
+        order.setStatus(status);
+        order.setUpdatedAt(LocalDateTime.now());
+        return order;
+    }
+
+    // Records what would have been written, one line per event
+    private static class RecordingEmitter extends SseEmitter {
+
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        volatile boolean completed;
+
+        void hold() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        void awaitBlocked() throws InterruptedException {
+            assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        String next() throws InterruptedException {
+            return events.poll(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            blocked.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            List<String> parts = new ArrayList<>();
+            builder.build().forEach(part -> {
+                if (part.getData() instanceof OrderStatusChange change) {
+                    parts.add(change.orderId() + "=" + change.status());
+                } else if (part.getData().toString().contains("event:resync")) {
+                    parts.add("resync");
+                }
+            });
+            if (!parts.isEmpty()) {
+                events.add(String.join(",", parts));
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
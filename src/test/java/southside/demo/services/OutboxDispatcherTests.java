@@ -0,0 +1,201 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import southside.demo.controllers.OrderController;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.Order;
+import southside.demo.models.OutboxEvent;
+import southside.demo.models.Product;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.OutboxEventRepository;
+import southside.demo.repository.ProductRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest(properties = "outbox.max-attempts=2")
+@ActiveProfiles("test")
+@Import(OutboxDispatcherTests.FlakyListenerConfig.class)
+class OutboxDispatcherTests {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(800_000L);
+
+    @TestConfiguration
+    static class FlakyListenerConfig {
+
+        @Bean
+        FlakyListener flakyListener(OrderRepository orderRepo) {
+            return new FlakyListener(orderRepo);
+        }
+    }
+
+    static class FlakyListener implements OrderEventListener {
+
+        private final OrderRepository orderRepo;
+
+        volatile boolean failing;
+        final Set<Long> poisoned = ConcurrentHashMap.newKeySet();
+        final AtomicInteger committed = new AtomicInteger();
+
+        FlakyListener(OrderRepository orderRepo) {
+            this.orderRepo = orderRepo;
+        }
+
+        @Override
+        public void orderPlaced(Order order) {
+            // Like RelatedProducts: counted only once the delivery commits
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed.incrementAndGet();
+                }
+            });
+            if (poisoned.contains(order.getId())) {
+                // Fails inside a repository call, which leaves the transaction rollback-only
+                orderRepo.findById(null);
+            }
+            if (failing) {
+                throw new IllegalStateException("mail server down");
+            }
+        }
+    }
+
+    @Autowired
+    private OutboxDispatcher dispatcher;
+
+    @Autowired
+    private FlakyListener flakyListener;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private OutboxEventRepository outboxRepo;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Test
+    void eventsWaitInTheTableUntilDispatched() {
+        Order order = checkout(product("Outbox tee"), product("Outbox cap"));
+
+        // Nothing has run yet; this is what a restart finds
+        assertThat(outboxRepo.findAll()).extracting(OutboxEvent::getAggregateId).contains(order.getId());
+        assertThat(orderRepo.findById(order.getId()).orElseThrow().getOrderSummary()).isEqualTo("2 items");
+
+        assertThat(dispatcher.dispatch()).isEqualTo(1);
+
+        assertThat(outboxRepo.findAll()).isEmpty();
+        assertThat(orderRepo.findById(order.getId()).orElseThrow().getOrderSummary())
+                .contains("Outbox tee x1").contains("Outbox cap x1");
+    }
+
+    @Test
+    void failedEventsAreRetriedUntilTheyGoDead() {
+        flakyListener.failing = true;
+        try {
+            Order retried = checkout(product("Retried hoodie"));
+            int committedBefore = flakyListener.committed.get();
+
+            assertThat(dispatcher.dispatch()).isZero();
+            OutboxEvent event = outboxRepo.findAll().get(0);
+            assertThat(event.getAttempts()).isEqualTo(1);
+            assertThat(event.getLastError()).contains("mail server down");
+
+            flakyListener.failing = false;
+            assertThat(dispatcher.dispatch()).isEqualTo(1);
+            assertThat(orderRepo.findById(retried.getId()).orElseThrow().getOrderSummary())
+                    .isEqualTo("Retried hoodie x1");
+            // The failed attempt left nothing behind
+            assertThat(flakyListener.committed.get()).isEqualTo(committedBefore + 1);
+
+            flakyListener.failing = true;
+            checkout(product("Dead socks"));
+            dispatcher.dispatch();
+            dispatcher.dispatch();
+            dispatcher.dispatch();
+
+            List<OutboxEvent> left = outboxRepo.findAll();
+            assertThat(left).hasSize(1);
+            assertThat(left.get(0).getAttempts()).isEqualTo(2);
+            Map<String, Object> stats = dispatcher.stats();
+            assertThat(stats.get("dead")).isEqualTo(1L);
+            assertThat(stats.get("pending")).isEqualTo(0L);
+        } finally {
+            flakyListener.failing = false;
+            outboxRepo.deleteAll();
+        }
+    }
+
+    @Test
+    void aPoisonEventFailsAloneAndGoesDead() {
+        try {
+            Order healthy = checkout(product("Healthy scarf"));
+            Order poison = checkout(product("Poison belt"));
+            Order after = checkout(product("After belt"));
+            flakyListener.poisoned.add(poison.getId());
+
+            // The events around it still go through
+            assertThat(dispatcher.dispatch()).isEqualTo(2);
+            assertThat(outboxRepo.findAll().get(0).getAttempts()).isEqualTo(1);
+            dispatcher.dispatch();
+
+            List<OutboxEvent> left = outboxRepo.findAll();
+            assertThat(left).extracting(OutboxEvent::getAggregateId).containsExactly(poison.getId());
+            assertThat(left.get(0).getAttempts()).isEqualTo(2);
+            assertThat(dispatcher.stats().get("dead")).isEqualTo(1L);
+            assertThat(orderRepo.findById(healthy.getId()).orElseThrow().getOrderSummary())
+                    .isEqualTo("Healthy scarf x1");
+            assertThat(orderRepo.findById(after.getId()).orElseThrow().getOrderSummary())
+                    .isEqualTo("After belt x1");
+        } finally {
+            flakyListener.poisoned.clear();
+            outboxRepo.deleteAll();
+        }
+    }
+
+    private Order checkout(Product... products) {
+        Cart cart = new Cart();
+        cart.setUserId(NEXT_USER.incrementAndGet());
+        for (Product p : products) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(p);
+            item.setQuantity(1);
+            item.setPrice(p.getPrice());
+            cart.getItems().add(item);
+        }
+        cart.calculateTotal();
+        Long userId = cartRepo.save(cart).getUserId();
+        return orderController.createOrderFromCart(userId, null, new Order()).getBody();
+    }
+
+    private Product product(String name) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(750.0);
+        p.setQuantity(100);
+        return productRepo.save(p);
+    }
+}
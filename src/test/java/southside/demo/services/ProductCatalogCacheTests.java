@@ -0,0 +1,83 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import southside.demo.models.Product;
+import southside.demo.repository.ProductRepository;
+import java.util.List;
+import java.util.Optional;
+
+class ProductCatalogCacheTests {
+
+    private final ProductRepository repo = mock(ProductRepository.class);
+
+    @Test
+    void aProductIsLoadedOnceAndThenServedFromMemory() {
+        ProductCatalogCache cache = new ProductCatalogCache(repo, 10);
+        when(repo.findById(1L)).thenReturn(Optional.of(product(1, "Tee", 500.0)));
+
+        assertThat(cache.get(1L).getName()).isEqualTo("Tee");
+        assertThat(cache.get(1L).getName()).isEqualTo("Tee");
+
+        verify(repo, times(1)).findById(1L);
+        assertThat(cache.stats()).containsEntry("hits", 1L).containsEntry("misses", 1L)
+                .containsEntry("size", 1);
+    }
+
+    @Test
+    void theLeastRecentlyUsedProductMakesRoom() {
+        ProductCatalogCache cache = new ProductCatalogCache(repo, 2);
+        for (long id = 1; id <= 3; id++) {
+            when(repo.findById(id)).thenReturn(Optional.of(product(id, "Product " + id, 100.0)));
+        }
+        cache.get(1L);
+        cache.get(2L);
+        // 1 is now more recent than 2, although its id is lower
+        cache.get(1L);
+
+        cache.get(3L);
+        cache.get(1L);
+        cache.get(2L);
+
+        verify(repo, times(1)).findById(1L);
+        verify(repo, times(2)).findById(2L);
+        // Reloading 2 pushed out 3, the least recent by then
+        assertThat(cache.stats()).containsEntry("evictions", 2L).containsEntry("size", 2);
+    }
+
+    @Test
+    void createsUpdatesAndDeletesKeepTheLoadedCatalogCurrent() {
+        ProductCatalogCache cache = new ProductCatalogCache(repo, 10);
+        when(repo.findAll()).thenReturn(List.of(product(1, "Tee", 500.0), product(2, "Cap", 300.0)));
+        cache.getAll();
+        String version = cache.version();
+
+        cache.productSaved(product(3, "Scarf", 200.0));
+        cache.productSaved(product(1, "Tee", 450.0));
+        cache.productDeleted(2L);
+
+        assertThat(cache.getAll()).extracting(Product::getName).containsExactly("Tee", "Scarf");
+        assertThat(cache.get(1L).getPrice()).isEqualTo(450.0);
+        assertThat(cache.get(3L).getName()).isEqualTo("Scarf");
+        // The complete catalog knows 2 is gone without asking
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.version()).isNotEqualTo(version);
+        verify(repo).findAll();
+        verifyNoMoreInteractions(repo);
+    }
+
+    private static Product product(long id, String name, double price) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setCategory("Tops");
+        p.setPrice(price);
+        return p;
+    }
+}
@@ -0,0 +1,37 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import southside.demo.models.Product;
+import southside.demo.models.ProductSummary;
+import southside.demo.repository.ProductRepository;
+import java.util.List;
+import java.util.Map;
+
+class ProductFacetsTests {
+
+    @Test
+    void aProductRepricedDuringTheStartupScanIsCountedInItsNewBucket() {
+        ProductRepository repo = mock(ProductRepository.class);
+        ProductFacets facets = new ProductFacets(repo, new double[] { 500, 1000 });
+        Product repriced = new Product();
+        repriced.setId(1L);
+        repriced.setCategory("Tops");
+        repriced.setPrice(800.0);
+        // The scan reads the 300.0 row, then the price edit commits before the scan applies it
+        when(repo.findSummariesAfter(any(), any())).thenAnswer(invocation -> {
+            facets.productSaved(repriced);
+            return List.of(new ProductSummary(1L, "Hoodie", "Tops", 300.0, null, null));
+        });
+
+        facets.rebuild();
+
+        Map<String, Object> counts = facets.counts(null, null, null);
+        assertThat(counts.get("priceBuckets")).isEqualTo(Map.of("0-500", 0, "500-1000", 1, "1000+", 0));
+        assertThat(counts.get("total")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,57 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import southside.demo.models.Product;
+import southside.demo.models.ProductSummary;
+import southside.demo.repository.ProductRepository;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+class ProductSearchIndexTests {
+
+    @Test
+    void shortPrefixesKeepTheCompletionsMostProductsShare() {
+        ProductSearchIndex index = new ProductSearchIndex(null);
+        // 20 rare completions that sort before the common one
+        for (int i = 0; i < 20; i++) {
+            index.productSaved(product(i + 1, "Shaa" + (char) ('a' + i)));
+        }
+        for (int i = 0; i < 5; i++) {
+            index.productSaved(product(100 + i, "Shirt " + i));
+        }
+
+        assertThat(index.search("sh", 30)).extracting(ProductSummary::name)
+                .contains("Shirt 0", "Shirt 1", "Shirt 2", "Shirt 3", "Shirt 4");
+    }
+
+    @Test
+    void writesDuringTheStartupScanWinOverTheRowsItRead() {
+        Product stale = product(1, "Old hoodie");
+        Product deleted = product(2, "Gone cap");
+        ProductSearchIndex[] index = new ProductSearchIndex[1];
+        // The scan reads its chunk, then both rows change before it gets to apply it
+        ProductRepository repo = (ProductRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ProductRepository.class }, (proxy, method, args) -> {
+                    index[0].productSaved(product(1, "New hoodie"));
+                    index[0].productDeleted(2L);
+                    return List.of(stale, deleted);
+                });
+        index[0] = new ProductSearchIndex(repo);
+
+        index[0].rebuild();
+
+        assertThat(index[0].search("hoodie", 10)).extracting(ProductSummary::name).containsExactly("New hoodie");
+        assertThat(index[0].search("cap", 10)).isEmpty();
+    }
+
+    private static Product product(long id, String name) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setCategory("Tops");
+        p.setPrice(500.0);
+        return p;
+    }
+}
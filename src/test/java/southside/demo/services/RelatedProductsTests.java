@@ -0,0 +1,184 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import southside.demo.controllers.OrderController;
+import southside.demo.controllers.ProductController;
+import southside.demo.models.Cart;
+import southside.demo.models.CartItem;
+import southside.demo.models.Order;
+import southside.demo.models.Product;
+import southside.demo.models.ProductSummary;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.OrderItemRepository;
+import southside.demo.repository.OrderRepository;
+import southside.demo.repository.OutboxEventRepository;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RelatedProductsTests {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(1_100_000L);
+
+    @Autowired
+    private RelatedProducts relatedProducts;
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    @Autowired
+    private OrderItemRepository orderItemRepo;
+
+    @Autowired
+    private OutboxEventRepository outboxRepo;
+
+    @Test
+    void checkoutsFeedTheRelatedProducts() {
+        Product tee = product("Related tee");
+        Product cap = product("Related cap");
+        Product socks = product("Related socks");
+        checkout(tee, cap);
+        checkout(tee, cap, socks);
+        checkout(tee, socks, cap);
+        checkout(tee, socks);
+        // Nothing is counted until the order's event has been delivered
+        assertThat(relatedProducts.related(tee.getId(), 5)).isEmpty();
+
+        outboxDispatcher.dispatch();
+
+        List<ProductSummary> related = productController.getRelated(tee.getId(), 5);
+        assertThat(related).extracting(ProductSummary::name).containsExactly("Related cap", "Related socks");
+        assertThat(relatedProducts.related(socks.getId(), 1)).containsExactly(tee.getId());
+    }
+
+    @Test
+    void bootstrapRebuildsTheMatrixFromStoredOrders() {
+        Product hoodie = product("Bootstrap hoodie");
+        Product beanie = product("Bootstrap beanie");
+        checkout(hoodie, beanie);
+        checkout(hoodie, beanie);
+        outboxDispatcher.dispatch();
+
+        RelatedProducts fresh = new RelatedProducts(orderRepo, orderItemRepo, outboxRepo, 1_000_000, 50);
+        fresh.bootstrap();
+
+        assertThat(fresh.related(hoodie.getId(), 5)).containsExactly(beanie.getId());
+    }
+
+    @Test
+    void bootstrapLeavesOrdersWithUndeliveredEventsToTheEvent() {
+        Product parka = product("Bootstrap parka");
+        Product gloves = product("Bootstrap gloves");
+        Order order = checkout(parka, gloves);
+
+        RelatedProducts fresh = new RelatedProducts(orderRepo, orderItemRepo, outboxRepo, 1_000_000, 50);
+        fresh.bootstrap();
+        assertThat(fresh.related(parka.getId(), 5)).isEmpty();
+
+        // The event, delivered after the scan, is what counts it
+        fresh.orderPlaced(order);
+        assertThat(fresh.related(parka.getId(), 5)).containsExactly(gloves.getId());
+    }
+
+    @Test
+    void pruningKeepsThePairCountBoundedAndTheStrongPairs() {
+        RelatedProducts bounded = new RelatedProducts(orderRepo, orderItemRepo, outboxRepo, 100, 50);
+        for (int i = 0; i < 20; i++) {
+            bounded.record(new long[] { 1, 2 });
+        }
+        // 10 products bought together once each make 45 more pairs, past the limit twice over
+        for (int order = 0; order < 4; order++) {
+            long[] products = new long[10];
+            for (int i = 0; i < 10; i++) {
+                products[i] = 1000 + order * 10 + i;
+            }
+            bounded.record(products);
+        }
+
+        assertThat((long) bounded.stats().get("pairs")).isLessThanOrEqualTo(100);
+        assertThat((long) bounded.stats().get("prunes")).isPositive();
+        assertThat(bounded.related(1, 5)).containsExactly(2L);
+    }
+
+    @Test
+    void deletingAProductRemovesItFromEveryRow() {
+        RelatedProducts local = new RelatedProducts(orderRepo, orderItemRepo, outboxRepo, 1000, 50);
+        local.record(new long[] { 1, 2, 3 });
+        local.record(new long[] { 1, 3 });
+
+        local.productDeleted(3L);
+
+        assertThat(local.related(1, 5)).containsExactly(2L);
+        assertThat(local.related(3, 5)).isEmpty();
+        assertThat(local.stats().get("pairs")).isEqualTo(1L);
+    }
+
+    // Run with -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkRelatedLookups() {
+        RelatedProducts large = new RelatedProducts(orderRepo, orderItemRepo, outboxRepo, 5_000_000, 50);
+        Random random = new Random(7);
+        for (int order = 0; order < 500_000; order++) {
+            long[] products = new long[2 + random.nextInt(4)];
+            for (int i = 0; i < products.length; i++) {
+                // Skewed so some products have long rows
+                products[i] = 1 + (long) Math.abs(random.nextGaussian() * 2000);
+            }
+            large.record(products);
+        }
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            long found = 0;
+            for (int i = 0; i < 100_000; i++) {
+                found += large.related(1 + random.nextInt(3000), 8).length;
+            }
+            System.out.printf("related lookups: %.2f us each (%s, %d results)%n",
+                    (System.nanoTime() - start) / 100_000 / 1000.0, large.stats(), found);
+        }
+    }
+
+    private Order checkout(Product... products) {
+        Cart cart = new Cart();
+        cart.setUserId(NEXT_USER.incrementAndGet());
+        for (Product p : products) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(p);
+            item.setQuantity(1);
+            item.setPrice(p.getPrice());
+            cart.getItems().add(item);
+        }
+        cart.calculateTotal();
+        return orderController.createOrderFromCart(cartRepo.save(cart).getUserId(), null, new Order()).getBody();
+    }
+
+    private Product product(String name) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(400.0);
+        p.setQuantity(100);
+        // Through the controller so the catalog the endpoint reads from sees it
+        return productController.createProduct(p);
+    }
+}
@@ -0,0 +1,180 @@
+package southside.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import southside.demo.config.IdBlockAllocator;
+import southside.demo.controllers.CartController;
+import southside.demo.controllers.OrderController;
+import southside.demo.models.Cart;
+import southside.demo.models.Order;
+import southside.demo.models.Product;
+import southside.demo.repository.CartRepository;
+import southside.demo.repository.ProductRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest(properties = {
+        "cart.store=write-behind",
+        // Write-back is driven by the tests
+        "cart.store.flush-interval=3600000"
+})
+@ActiveProfiles("test")
+class WriteBehindCartStoreTests {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(900_000L);
+    private static final Path JOURNAL_DIR;
+
+    static {
+        try {
+            JOURNAL_DIR = Files.createTempDirectory("cart-journal");
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) {
+        registry.add("cart.store.journal-dir", JOURNAL_DIR::toString);
+    }
+
+    @Autowired
+    private WriteBehindCartStore store;
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    @Autowired
+    private IdBlockAllocator ids;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private IdleCartSweeper sweeper;
+
+    @Test
+    void clicksStayInMemoryUntilWriteBack() {
+        Product tee = product("Write-behind tee", 350.0);
+        Long userId = NEXT_USER.incrementAndGet();
+
+        for (int i = 0; i < 5; i++) {
+            add(userId, tee, 1);
+        }
+
+        assertThat(cartController.getCartByUserId(userId).getBody().getTotalAmount()).isEqualByComparingTo("1750");
+        assertThat(cartRepo.findByUserId(userId)).isEmpty();
+
+        store.writeBack();
+
+        Cart stored = cartRepo.findByUserId(userId).orElseThrow();
+        assertThat(stored.getItems()).hasSize(1);
+        assertThat(stored.getItems().get(0).getQuantity()).isEqualTo(5);
+        assertThat(stored.getTotalAmount()).isEqualByComparingTo("1750");
+    }
+
+    @Test
+    void checkoutSeesTheCartBeforeItIsWrittenBack() {
+        Product cap = product("Write-behind cap", 200.0);
+        Long userId = NEXT_USER.incrementAndGet();
+        add(userId, cap, 2);
+
+        Order order = orderController.createOrderFromCart(userId, null, new Order()).getBody();
+
+        assertThat(order.getItems()).hasSize(1);
+        assertThat(order.getTotal()).isEqualTo(400.0);
+        assertThat(cartController.getCartByUserId(userId).getBody().getItems()).isEmpty();
+
+        // A later round must not bring the ordered lines back
+        store.writeBack();
+        assertThat(cartRepo.findByUserId(userId).orElseThrow().getItems()).isEmpty();
+    }
+
+    @Test
+    void sweptCartsAreForgottenInMemoryToo() {
+        Product sock = product("Write-behind sock", 90.0);
+        Long userId = NEXT_USER.incrementAndGet();
+        add(userId, sock, 1);
+        store.writeBack();
+        jdbc.update("UPDATE carts SET updated_at = ? WHERE user_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(60)), userId);
+
+        assertThat(sweeper.sweep()).isPositive();
+
+        assertThat(store.find(userId)).isEmpty();
+        store.writeBack();
+        assertThat(cartRepo.findByUserId(userId)).isEmpty();
+    }
+
+    @Test
+    void acknowledgedClicksSurviveACrash() throws IOException {
+        Product hoodie = product("Write-behind hoodie", 1200.0);
+        Long first = NEXT_USER.incrementAndGet();
+        Long second = NEXT_USER.incrementAndGet();
+        add(first, hoodie, 1);
+        add(second, hoodie, 2);
+        add(first, hoodie, 2);
+
+        // Nothing was written back: only the journal knows about these carts
+        assertThat(cartRepo.findByUserId(first)).isEmpty();
+        Path crashed = Files.createTempDirectory("cart-journal-crash");
+        try (var segments = Files.list(JOURNAL_DIR)) {
+            for (Path segment : segments.toList()) {
+                Files.copy(segment, crashed.resolve(segment.getFileName()));
+            }
+        }
+
+        // What startup does after a crash
+        WriteBehindCartStore restarted = new WriteBehindCartStore(cartRepo, jdbc, txManager, ids, mapper,
+                crashed, false, 1000);
+        restarted.recover();
+
+        assertThat(cartRepo.findByUserId(first).orElseThrow().getItems().get(0).getQuantity()).isEqualTo(3);
+        assertThat(cartRepo.findByUserId(first).orElseThrow().getTotalAmount()).isEqualByComparingTo("3600");
+        assertThat(cartRepo.findByUserId(second).orElseThrow().getItems().get(0).getQuantity()).isEqualTo(2);
+        try (var left = Files.list(crashed)) {
+            assertThat(left.count()).isZero();
+        }
+    }
+
+    private Cart add(Long userId, Product product, int quantity) {
+        return cartController.addItemToCart(userId,
+                Map.of("productId", product.getId(), "quantity", quantity)).getBody();
+    }
+
+    private Product product(String name, double price) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(price);
+        p.setQuantity(1000);
+        return productRepo.save(p);
+    }
+}
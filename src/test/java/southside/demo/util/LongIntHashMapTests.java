@@ -0,0 +1,62 @@
+package southside.demo.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+class LongIntHashMapTests {
+
+    @Test
+    void behavesLikeAHashMapUnderRandomOperations() {
+        Random random = new Random(42);
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // Small key range so removals hit and probe runs get long; includes key 0
+            long key = random.nextInt(2000) - 100;
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    map.put(key, i);
+                    expected.put(key, i);
+                }
+                case 1 -> assertThat(map.addTo(key, 3)).isEqualTo(expected.merge(key, 3, Integer::sum));
+                case 2 -> {
+                    Integer removed = expected.remove(key);
+                    assertThat(map.remove(key)).isEqualTo(removed == null ? 0 : removed);
+                }
+                default -> assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, 0));
+            }
+            if (i % 50_000 == 0) {
+                int removed = map.removeIf(value -> value % 2 == 0);
+                int before = expected.size();
+                expected.values().removeIf(value -> value % 2 == 0);
+                assertThat(removed).isEqualTo(before - expected.size());
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        Map<Long, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    void objectMapKeepsEveryKeyThroughGrowthAndRemoval() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key * 7919, "v" + key);
+        }
+        for (long key = 0; key < 10_000; key += 2) {
+            assertThat(map.remove(key * 7919)).isEqualTo("v" + key);
+        }
+
+        assertThat(map.size()).isEqualTo(5000);
+        for (long key = 0; key < 10_000; key++) {
+            assertThat(map.get(key * 7919)).isEqualTo(key % 2 == 0 ? null : "v" + key);
+        }
+    }
+}